@@ -0,0 +1,21 @@
+package com.lingarogroup.peopledb.cache;
+
+import com.lingarogroup.peopledb.model.Address;
+
+import java.nio.ByteBuffer;
+
+/**
+ * This class encodes an Address as its ID, its text fields and the ordinal of its Region.
+ */
+public class AddressCodec implements EntityCodec<Address> {
+
+    @Override
+    public void encode(Address address, ByteBuffer buffer) {
+        BinaryFields.putAddress(buffer, address);
+    }
+
+    @Override
+    public Address decode(ByteBuffer buffer) {
+        return BinaryFields.getAddress(buffer);
+    }
+}
@@ -0,0 +1,119 @@
+package com.lingarogroup.peopledb.cache;
+
+import com.lingarogroup.peopledb.model.Address;
+import com.lingarogroup.peopledb.model.Region;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+/**
+ * This class writes and reads the nullable field types shared by the entity codecs.
+ * Nullable values are written with a length or a presence flag first, so no field needs a fixed size.
+ */
+final class BinaryFields {
+    private static final int NULL_LENGTH = -1;
+    private static final byte ABSENT = 0;
+    private static final byte PRESENT = 1;
+    private static final Region[] REGIONS = Region.values();
+
+    private BinaryFields() {
+    }
+
+    static void putString(ByteBuffer buffer, String value) {
+        if (value == null) {
+            buffer.putInt(NULL_LENGTH);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        buffer.putInt(bytes.length).put(bytes);
+    }
+
+    static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length == NULL_LENGTH) return null;
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static boolean putPresence(ByteBuffer buffer, Object value) {
+        buffer.put(value == null ? ABSENT : PRESENT);
+        return value != null;
+    }
+
+    static boolean getPresence(ByteBuffer buffer) {
+        return buffer.get() == PRESENT;
+    }
+
+    static void putLong(ByteBuffer buffer, Long value) {
+        if (putPresence(buffer, value)) {
+            buffer.putLong(value);
+        }
+    }
+
+    static Long getLong(ByteBuffer buffer) {
+        return getPresence(buffer) ? buffer.getLong() : null;
+    }
+
+    static void putDateTime(ByteBuffer buffer, ZonedDateTime value) {
+        if (putPresence(buffer, value)) {
+            Instant instant = value.toInstant();
+            buffer.putLong(instant.getEpochSecond()).putInt(instant.getNano());
+            putString(buffer, value.getZone().getId());
+        }
+    }
+
+    static ZonedDateTime getDateTime(ByteBuffer buffer) {
+        if (!getPresence(buffer)) return null;
+        Instant instant = Instant.ofEpochSecond(buffer.getLong(), buffer.getInt());
+        return instant.atZone(ZoneId.of(getString(buffer)));
+    }
+
+    static void putDecimal(ByteBuffer buffer, BigDecimal value) {
+        if (putPresence(buffer, value)) {
+            byte[] unscaled = value.unscaledValue().toByteArray();
+            buffer.putInt(value.scale()).putInt(unscaled.length).put(unscaled);
+        }
+    }
+
+    static BigDecimal getDecimal(ByteBuffer buffer) {
+        if (!getPresence(buffer)) return null;
+        int scale = buffer.getInt();
+        byte[] unscaled = new byte[buffer.getInt()];
+        buffer.get(unscaled);
+        return new BigDecimal(new BigInteger(unscaled), scale);
+    }
+
+    static void putAddress(ByteBuffer buffer, Address address) {
+        if (!putPresence(buffer, address)) return;
+        putLong(buffer, address.getId());
+        putString(buffer, address.getStreetAddress());
+        putString(buffer, address.getAddress2());
+        putString(buffer, address.getCity());
+        putString(buffer, address.getState());
+        putString(buffer, address.getPostcode());
+        putString(buffer, address.getCountry());
+        putString(buffer, address.getCounty());
+        buffer.put(address.getRegion() == null ? (byte) NULL_LENGTH : (byte) address.getRegion().ordinal());
+    }
+
+    static Address getAddress(ByteBuffer buffer) {
+        if (!getPresence(buffer)) return null;
+        Long id = getLong(buffer);
+        String streetAddress = getString(buffer);
+        String address2 = getString(buffer);
+        String city = getString(buffer);
+        String state = getString(buffer);
+        String postcode = getString(buffer);
+        String country = getString(buffer);
+        String county = getString(buffer);
+        byte region = buffer.get();
+        return new Address(id, streetAddress, address2, city, state, postcode, country, county,
+                region == NULL_LENGTH ? null : REGIONS[region]);
+    }
+}
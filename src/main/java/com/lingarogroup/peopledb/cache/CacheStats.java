@@ -0,0 +1,17 @@
+package com.lingarogroup.peopledb.cache;
+
+/**
+ * This record is a snapshot of the counters of an EntityCache.
+ *
+ * @param hits The number of lookups which found a cached entity.
+ * @param misses The number of lookups which did not find a cached entity.
+ * @param evictions The number of entities removed because the cache was full or they expired.
+ * @param size The number of entities in the cache.
+ */
+public record CacheStats(long hits, long misses, long evictions, long size) {
+
+    public double hitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+}
@@ -0,0 +1,38 @@
+package com.lingarogroup.peopledb.cache;
+
+/**
+ * This interface is a cache of entities by their ID, shared by all threads using a repository.
+ * A repository consults it in findById before querying the database and invalidates it when an entity changes.
+ * Implementations must be thread-safe.
+ *
+ * @param <T> The type of the cached entities.
+ */
+public interface EntityCache<T> {
+
+    /**
+     * This method returns the cached entity.
+     *
+     * @param id The ID of the entity.
+     * @return The cached entity, or null if it is not cached (or has expired).
+     */
+    T get(Long id);
+
+    /**
+     * This method puts an entity into the cache, evicting other entities if the cache is full.
+     *
+     * @param id The ID of the entity.
+     * @param entity The entity to cache.
+     */
+    void put(Long id, T entity);
+
+    /**
+     * This method removes an entity from the cache, e.g. because it was updated or deleted.
+     *
+     * @param id The ID of the entity.
+     */
+    void invalidate(Long id);
+
+    void invalidateAll();
+
+    CacheStats stats();
+}
@@ -0,0 +1,29 @@
+package com.lingarogroup.peopledb.cache;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * This interface converts entities to and from a compact binary form, so they can be stored outside the Java heap.
+ *
+ * @param <T> The type of the encoded entities.
+ */
+public interface EntityCodec<T> {
+
+    /**
+     * This method writes the entity at the position of the buffer.
+     *
+     * @param entity The entity to encode.
+     * @param buffer The buffer to write to.
+     * @throws BufferOverflowException If the entity does not fit into the remaining space of the buffer.
+     */
+    void encode(T entity, ByteBuffer buffer);
+
+    /**
+     * This method reads an entity from the position of the buffer, building new objects.
+     *
+     * @param buffer The buffer to read from, positioned on an entity written by encode.
+     * @return The decoded entity.
+     */
+    T decode(ByteBuffer buffer);
+}
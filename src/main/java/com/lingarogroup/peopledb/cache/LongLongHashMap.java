@@ -0,0 +1,162 @@
+package com.lingarogroup.peopledb.cache;
+
+import java.util.Arrays;
+
+/**
+ * This class is a hash map from long keys to non-negative long values, stored in two primitive arrays.
+ * It uses open addressing with linear probing, and removals shift the following entries back instead of leaving tombstones,
+ * so an entry costs 16 bytes of the arrays and no objects, unlike a HashMap with its nodes and boxed Longs.
+ * A negative value marks a free slot, which is why only non-negative values can be stored.
+ * It is not thread-safe.
+ */
+final class LongLongHashMap {
+    static final long NO_VALUE = -1;
+    private static final int MIN_CAPACITY = 16;
+    // kept low, as linear probing slows down quickly when the table gets full
+    private static final double MAX_LOAD = 0.6;
+
+    private long[] keys;
+    private long[] values;
+    private int mask;
+    private int size;
+    private int resizeAt;
+
+    LongLongHashMap(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    /**
+     * This method returns the value of the key.
+     *
+     * @param key The key.
+     * @return The value, or NO_VALUE if the key is not in the map.
+     */
+    long get(long key) {
+        for (int slot = slot(key); ; slot = (slot + 1) & mask) {
+            long value = values[slot];
+            if (value == NO_VALUE || keys[slot] == key) return value;
+        }
+    }
+
+    /**
+     * This method sets the value of the key, replacing its previous value.
+     *
+     * @param key The key.
+     * @param value The value, must not be negative.
+     * @throws IllegalArgumentException If the value is negative.
+     */
+    void put(long key, long value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Value must not be negative, but was: " + value);
+        }
+        int slot = slot(key);
+        while (values[slot] != NO_VALUE) {
+            if (keys[slot] == key) {
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > resizeAt) {
+            rehash(keys.length * 2);
+        }
+    }
+
+    /**
+     * This method removes the key.
+     *
+     * @param key The key.
+     * @return The removed value, or NO_VALUE if the key was not in the map.
+     */
+    long remove(long key) {
+        int slot = find(key);
+        if (slot < 0) return NO_VALUE;
+        long value = values[slot];
+        removeSlot(slot);
+        return value;
+    }
+
+    /**
+     * This method removes the key only if it still has the given value.
+     *
+     * @param key The key.
+     * @param value The expected value.
+     * @return true if the key was removed.
+     */
+    boolean remove(long key, long value) {
+        int slot = find(key);
+        if (slot < 0 || values[slot] != value) return false;
+        removeSlot(slot);
+        return true;
+    }
+
+    void clear() {
+        Arrays.fill(values, NO_VALUE);
+        size = 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private int find(long key) {
+        for (int slot = slot(key); ; slot = (slot + 1) & mask) {
+            if (values[slot] == NO_VALUE) return -1;
+            if (keys[slot] == key) return slot;
+        }
+    }
+
+    /**
+     * This method frees the slot and moves back the following entries of the probe sequence which can no longer be reached,
+     * i.e. whose home slot is not between the freed slot and their own slot.
+     */
+    private void removeSlot(int gap) {
+        for (int slot = (gap + 1) & mask; values[slot] != NO_VALUE; slot = (slot + 1) & mask) {
+            int home = slot(keys[slot]);
+            boolean reachable = gap < slot ? gap < home && home <= slot : gap < home || home <= slot;
+            if (!reachable) {
+                keys[gap] = keys[slot];
+                values[gap] = values[slot];
+                gap = slot;
+            }
+        }
+        values[gap] = NO_VALUE;
+        size--;
+    }
+
+    private int slot(long key) {
+        // the IDs are mostly sequential, so the bits are mixed before taking the lowest ones
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        allocate(capacity);
+        size = 0;
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != NO_VALUE) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new long[capacity];
+        Arrays.fill(values, NO_VALUE);
+        mask = capacity - 1;
+        resizeAt = (int) (capacity * MAX_LOAD);
+    }
+
+    private static int capacityFor(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity * MAX_LOAD < expectedSize) {
+            capacity *= 2;
+        }
+        return capacity;
+    }
+}
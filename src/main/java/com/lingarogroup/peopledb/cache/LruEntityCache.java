@@ -0,0 +1,150 @@
+package com.lingarogroup.peopledb.cache;
+
+import com.lingarogroup.peopledb.model.Address;
+import com.lingarogroup.peopledb.model.Person;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * This class is an on-heap EntityCache with a bounded size and a time to live.
+ * When the cache is full, the least recently used entity is evicted.
+ * Entities older than the time to live are treated as missing and evicted when they are looked up.
+ * The entities are stored encoded with an EntityCodec, like in the OffHeapEntityCache, but in byte arrays on the heap.
+ * A hit decodes the entity into new objects, so callers get their own instance which they may modify
+ * without changing the cached entity, e.g. before an update which fails.
+ *
+ * @param <T> The type of the cached entities.
+ */
+public class LruEntityCache<T> implements EntityCache<T> {
+    private static final int MIN_SCRATCH_SIZE = 1024;
+
+    private final EntityCodec<T> codec;
+    private final Map<Long, Entry> entries;
+    // every thread encodes into its own buffer, so entities are encoded outside the lock of the cache
+    private final ThreadLocal<ByteBuffer> scratch = ThreadLocal.withInitial(() -> ByteBuffer.allocate(MIN_SCRATCH_SIZE));
+    private final long ttlNanos;
+    private final LongSupplier nanoTime;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public LruEntityCache(EntityCodec<T> codec, int maxSize, Duration ttl) {
+        this(codec, maxSize, ttl, System::nanoTime);
+    }
+
+    LruEntityCache(EntityCodec<T> codec, int maxSize, Duration ttl, LongSupplier nanoTime) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Cache size must be greater than 0, but was: " + maxSize);
+        }
+        if (ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("Cache time to live must be positive, but was: " + ttl);
+        }
+        this.codec = codec;
+        this.ttlNanos = ttl.toNanos();
+        this.nanoTime = nanoTime;
+        // access order makes the LinkedHashMap iterate from the least to the most recently used entity
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                if (size() > maxSize) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * This method creates an on-heap cache of the Person graphs loaded by PeopleRepository.findById.
+     *
+     * @param maxSize The maximum number of cached people.
+     * @param ttl The time after which a cached person is treated as missing.
+     * @return The new cache.
+     */
+    public static LruEntityCache<Person> forPeople(int maxSize, Duration ttl) {
+        return new LruEntityCache<>(new PersonCodec(), maxSize, ttl);
+    }
+
+    /**
+     * This method creates an on-heap cache of the addresses loaded by AddressRepository.findById.
+     *
+     * @param maxSize The maximum number of cached addresses.
+     * @param ttl The time after which a cached address is treated as missing.
+     * @return The new cache.
+     */
+    public static LruEntityCache<Address> forAddresses(int maxSize, Duration ttl) {
+        return new LruEntityCache<>(new AddressCodec(), maxSize, ttl);
+    }
+
+    @Override
+    public T get(Long id) {
+        byte[] encoded = getEncoded(id);
+        return encoded == null ? null : codec.decode(ByteBuffer.wrap(encoded));
+    }
+
+    private synchronized byte[] getEncoded(Long id) {
+        Entry entry = entries.get(id);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        if (nanoTime.getAsLong() - entry.createdAt() > ttlNanos) {
+            entries.remove(id);
+            evictions++;
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.encoded();
+    }
+
+    @Override
+    public void put(Long id, T entity) {
+        if (id == null || entity == null) return;
+        byte[] encoded = encode(entity);
+        synchronized (this) {
+            entries.put(id, new Entry(encoded, nanoTime.getAsLong()));
+        }
+    }
+
+    @Override
+    public synchronized void invalidate(Long id) {
+        entries.remove(id);
+    }
+
+    @Override
+    public synchronized void invalidateAll() {
+        entries.clear();
+    }
+
+    @Override
+    public synchronized CacheStats stats() {
+        return new CacheStats(hits, misses, evictions, entries.size());
+    }
+
+    private byte[] encode(T entity) {
+        ByteBuffer buffer = scratch.get();
+        while (true) {
+            buffer.clear();
+            try {
+                codec.encode(entity, buffer);
+                buffer.flip();
+                byte[] encoded = new byte[buffer.remaining()];
+                buffer.get(encoded);
+                return encoded;
+            } catch (BufferOverflowException e) {
+                buffer = ByteBuffer.allocate(buffer.capacity() * 2);
+                scratch.set(buffer);
+            }
+        }
+    }
+
+    private record Entry(byte[] encoded, long createdAt) {
+    }
+}
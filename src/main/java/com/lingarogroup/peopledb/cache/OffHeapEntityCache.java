@@ -0,0 +1,203 @@
+package com.lingarogroup.peopledb.cache;
+
+import com.lingarogroup.peopledb.model.Address;
+import com.lingarogroup.peopledb.model.Person;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.function.LongSupplier;
+
+/**
+ * This class is an EntityCache which keeps the entities outside the Java heap, in direct ByteBuffer slabs.
+ * Entities are encoded with an EntityCodec and appended to the current slab, each behind a header with its ID,
+ * the time it was cached and its length. When the current slab is full, the next slab of the ring is reused,
+ * and all entities still stored in it are evicted at once, so the oldest entries leave the cache first.
+ * A hit decodes the entity into new objects, so callers get their own instance which they may modify.
+ * Only the index from ID to slab position lives on the heap, in two primitive arrays (see LongLongHashMap),
+ * so a cached entity costs 16 bytes of the heap and no objects, which keeps a large cache out of the old generation.
+ * Entities which don't fit into a single slab are not cached.
+ *
+ * @param <T> The type of the cached entities.
+ */
+public class OffHeapEntityCache<T> implements EntityCache<T> {
+    public static final int DEFAULT_SLAB_SIZE = 4 * 1024 * 1024;
+
+    // id, time the entity was cached, length of the encoded entity
+    private static final int HEADER_SIZE = Long.BYTES + Long.BYTES + Integer.BYTES;
+    private static final int MIN_SCRATCH_SIZE = 1024;
+
+    private final EntityCodec<T> codec;
+    private final ByteBuffer[] slabs;
+    private final int[] slabEnds;
+    private final int slabSize;
+    private final long ttlNanos;
+    private final LongSupplier nanoTime;
+    // position of every cached entity: the slab index in the high 32 bits and the offset in the low 32 bits
+    private final LongLongHashMap positions = new LongLongHashMap(1024);
+    // every thread encodes into its own buffer, so entities are encoded outside the lock of the cache
+    private final ThreadLocal<ByteBuffer> scratch = ThreadLocal.withInitial(() -> ByteBuffer.allocate(MIN_SCRATCH_SIZE));
+    private int currentSlab;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public OffHeapEntityCache(EntityCodec<T> codec, int slabCount, int slabSize, Duration ttl) {
+        this(codec, slabCount, slabSize, ttl, System::nanoTime);
+    }
+
+    OffHeapEntityCache(EntityCodec<T> codec, int slabCount, int slabSize, Duration ttl, LongSupplier nanoTime) {
+        if (slabCount < 1) {
+            throw new IllegalArgumentException("Slab count must be greater than 0, but was: " + slabCount);
+        }
+        if (slabSize <= HEADER_SIZE) {
+            throw new IllegalArgumentException("Slab size must be greater than " + HEADER_SIZE + " bytes, but was: " + slabSize);
+        }
+        if (ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("Cache time to live must be positive, but was: " + ttl);
+        }
+        this.codec = codec;
+        this.slabs = new ByteBuffer[slabCount];
+        this.slabEnds = new int[slabCount];
+        this.slabSize = slabSize;
+        this.ttlNanos = ttl.toNanos();
+        this.nanoTime = nanoTime;
+    }
+
+    /**
+     * This method creates an off-heap cache of the Person graphs loaded by PeopleRepository.findById.
+     *
+     * @param slabCount The number of slabs, the cache takes up to slabCount * slabSize bytes of direct memory.
+     * @param slabSize The size of a single slab in bytes.
+     * @param ttl The time after which a cached person is treated as missing.
+     * @return The new cache.
+     */
+    public static OffHeapEntityCache<Person> forPeople(int slabCount, int slabSize, Duration ttl) {
+        return new OffHeapEntityCache<>(new PersonCodec(), slabCount, slabSize, ttl);
+    }
+
+    /**
+     * This method creates an off-heap cache of the addresses loaded by AddressRepository.findById.
+     *
+     * @param slabCount The number of slabs, the cache takes up to slabCount * slabSize bytes of direct memory.
+     * @param slabSize The size of a single slab in bytes.
+     * @param ttl The time after which a cached address is treated as missing.
+     * @return The new cache.
+     */
+    public static OffHeapEntityCache<Address> forAddresses(int slabCount, int slabSize, Duration ttl) {
+        return new OffHeapEntityCache<>(new AddressCodec(), slabCount, slabSize, ttl);
+    }
+
+    @Override
+    public synchronized T get(Long id) {
+        long position = id == null ? LongLongHashMap.NO_VALUE : positions.get(id);
+        if (position == LongLongHashMap.NO_VALUE) {
+            misses++;
+            return null;
+        }
+        ByteBuffer slab = slabs[slabIndex(position)];
+        int offset = slabOffset(position);
+        if (nanoTime.getAsLong() - slab.getLong(offset + Long.BYTES) > ttlNanos) {
+            positions.remove(id);
+            evictions++;
+            misses++;
+            return null;
+        }
+        int length = slab.getInt(offset + 2 * Long.BYTES);
+        hits++;
+        return codec.decode(slab.slice(offset + HEADER_SIZE, length));
+    }
+
+    @Override
+    public void put(Long id, T entity) {
+        if (id == null || entity == null) return;
+        ByteBuffer encoded = encode(entity);
+        synchronized (this) {
+            store(id, encoded);
+        }
+    }
+
+    private void store(long id, ByteBuffer encoded) {
+        if (encoded == null || encoded.remaining() > slabSize - HEADER_SIZE) {
+            // a stale copy must not be served after a newer version failed to be cached
+            positions.remove(id);
+            return;
+        }
+        int length = encoded.remaining();
+        if (slabs[currentSlab] == null) {
+            slabs[currentSlab] = ByteBuffer.allocateDirect(slabSize);
+        } else if (slabSize - slabEnds[currentSlab] < HEADER_SIZE + length) {
+            currentSlab = (currentSlab + 1) % slabs.length;
+            recycle(currentSlab);
+        }
+        ByteBuffer slab = slabs[currentSlab];
+        int offset = slabEnds[currentSlab];
+        slab.putLong(offset, id)
+                .putLong(offset + Long.BYTES, nanoTime.getAsLong())
+                .putInt(offset + 2 * Long.BYTES, length)
+                .put(offset + HEADER_SIZE, encoded, 0, length);
+        slabEnds[currentSlab] = offset + HEADER_SIZE + length;
+        positions.put(id, ((long) currentSlab << 32) | offset);
+    }
+
+    @Override
+    public synchronized void invalidate(Long id) {
+        if (id == null) return;
+        // the bytes of the entity stay in the slab until the slab is reused
+        positions.remove(id);
+    }
+
+    @Override
+    public synchronized void invalidateAll() {
+        positions.clear();
+        Arrays.fill(slabEnds, 0);
+        currentSlab = 0;
+    }
+
+    @Override
+    public synchronized CacheStats stats() {
+        return new CacheStats(hits, misses, evictions, positions.size());
+    }
+
+    private ByteBuffer encode(T entity) {
+        ByteBuffer buffer = scratch.get();
+        while (true) {
+            buffer.clear();
+            try {
+                codec.encode(entity, buffer);
+                return buffer.flip();
+            } catch (BufferOverflowException e) {
+                if (buffer.capacity() >= slabSize - HEADER_SIZE) {
+                    return null;
+                }
+                buffer = ByteBuffer.allocate(Math.min(buffer.capacity() * 2, slabSize - HEADER_SIZE));
+                scratch.set(buffer);
+            }
+        }
+    }
+
+    private void recycle(int slabIndex) {
+        ByteBuffer slab = slabs[slabIndex];
+        if (slab == null) {
+            slabs[slabIndex] = ByteBuffer.allocateDirect(slabSize);
+            return;
+        }
+        // walking the headers of the slab, evicting the entities whose latest copy is still stored in it
+        for (int offset = 0; offset < slabEnds[slabIndex]; offset += HEADER_SIZE + slab.getInt(offset + 2 * Long.BYTES)) {
+            long id = slab.getLong(offset);
+            if (positions.remove(id, ((long) slabIndex << 32) | offset)) {
+                evictions++;
+            }
+        }
+        slabEnds[slabIndex] = 0;
+    }
+
+    private static int slabIndex(long position) {
+        return (int) (position >>> 32);
+    }
+
+    private static int slabOffset(long position) {
+        return (int) position;
+    }
+}
@@ -0,0 +1,138 @@
+package com.lingarogroup.peopledb.cache;
+
+import com.lingarogroup.peopledb.model.Person;
+import com.lingarogroup.peopledb.model.PersonAssociation;
+
+import java.nio.ByteBuffer;
+import java.util.Set;
+
+/**
+ * This class encodes the Person graph loaded by PeopleRepository.findById:
+ * the person with its addresses, its spouse and its children.
+ * Only saved people are cached, so every encoded person has an ID.
+ * The spouse and the children are encoded with their own fields and addresses, and the ID of their spouse, but without their relatives.
+ * The parent of a decoded child is the decoded person.
+ * Encoding never loads anything: an association which is not loaded yet (see Person.isLoaded) is encoded by its foreign key
+ * if the person knows it (see Person.getReference), so the repository can set up its loader without querying the row again.
+ * Otherwise it is not encoded, and it is unresolved in the decoded person (see Person.setUnresolved), like the children of the relatives.
+ */
+public class PersonCodec implements EntityCodec<Person> {
+    private static final byte NOT_LOADED = 0;
+    private static final byte LOADED = 1;
+    private static final byte REFERENCED = 2;
+
+    @Override
+    public void encode(Person person, ByteBuffer buffer) {
+        putPerson(buffer, person);
+        if (putState(buffer, person, PersonAssociation.SPOUSE)) {
+            putRelative(buffer, person.getSpouse().orElse(null));
+        }
+        if (putState(buffer, person, PersonAssociation.CHILDREN)) {
+            Set<Person> children = person.getChildren();
+            buffer.putInt(children.size());
+            for (Person child : children) {
+                putRelative(buffer, child);
+            }
+        }
+    }
+
+    @Override
+    public Person decode(ByteBuffer buffer) {
+        Person person = getPerson(buffer);
+        if (getState(buffer, person, PersonAssociation.SPOUSE)) {
+            person.setSpouse(getRelative(buffer));
+        }
+        if (getState(buffer, person, PersonAssociation.CHILDREN)) {
+            for (int children = buffer.getInt(); children > 0; children--) {
+                person.addChild(getRelative(buffer));
+            }
+        }
+        return person;
+    }
+
+    private static void putPerson(ByteBuffer buffer, Person person) {
+        if (!BinaryFields.putPresence(buffer, person)) return;
+        buffer.putLong(person.getId());
+        BinaryFields.putString(buffer, person.getFirstName());
+        BinaryFields.putString(buffer, person.getLastName());
+        BinaryFields.putDateTime(buffer, person.getDateOfBirth());
+        BinaryFields.putDecimal(buffer, person.getSalary());
+        BinaryFields.putString(buffer, person.getEmail());
+        if (putState(buffer, person, PersonAssociation.HOME_ADDRESS)) {
+            BinaryFields.putAddress(buffer, person.getHomeAddress().orElse(null));
+        }
+        if (putState(buffer, person, PersonAssociation.SECONDARY_ADDRESS)) {
+            BinaryFields.putAddress(buffer, person.getSecondaryAddress().orElse(null));
+        }
+    }
+
+    private static Person getPerson(ByteBuffer buffer) {
+        if (!BinaryFields.getPresence(buffer)) return null;
+        Person person = new Person(buffer.getLong(), BinaryFields.getString(buffer), BinaryFields.getString(buffer),
+                BinaryFields.getDateTime(buffer), BinaryFields.getDecimal(buffer));
+        person.setEmail(BinaryFields.getString(buffer));
+        if (getState(buffer, person, PersonAssociation.HOME_ADDRESS)) {
+            person.setHomeAddress(BinaryFields.getAddress(buffer));
+        }
+        if (getState(buffer, person, PersonAssociation.SECONDARY_ADDRESS)) {
+            person.setSecondaryAddress(BinaryFields.getAddress(buffer));
+        }
+        return person;
+    }
+
+    private static void putRelative(ByteBuffer buffer, Person relative) {
+        putPerson(buffer, relative);
+        if (relative == null) return;
+        // only the ID of the spouse of a relative is kept, even if the spouse is loaded
+        if (relative.isLoaded(PersonAssociation.SPOUSE)) {
+            buffer.put(REFERENCED);
+            BinaryFields.putLong(buffer, relative.getSpouse().map(Person::getId).orElse(null));
+        } else {
+            putState(buffer, relative, PersonAssociation.SPOUSE);
+        }
+    }
+
+    private static Person getRelative(ByteBuffer buffer) {
+        Person relative = getPerson(buffer);
+        if (relative != null) {
+            getState(buffer, relative, PersonAssociation.SPOUSE);
+            relative.setUnresolved(PersonAssociation.CHILDREN);
+        }
+        return relative;
+    }
+
+    /**
+     * This method writes whether an association is loaded, referenced by its foreign key (which is written as well) or neither.
+     *
+     * @return true if the association is loaded, so its value has to be written next.
+     */
+    private static boolean putState(ByteBuffer buffer, Person person, PersonAssociation association) {
+        if (person.isLoaded(association)) {
+            buffer.put(LOADED);
+            return true;
+        }
+        if (person.isReferenced(association)) {
+            buffer.put(REFERENCED);
+            BinaryFields.putLong(buffer, person.getReference(association));
+        } else {
+            buffer.put(NOT_LOADED);
+        }
+        return false;
+    }
+
+    /**
+     * This method reads the state written by putState, and leaves the association unresolved if it is not loaded.
+     *
+     * @return true if the association is loaded, so its value has to be read next.
+     */
+    private static boolean getState(ByteBuffer buffer, Person person, PersonAssociation association) {
+        byte state = buffer.get();
+        if (state == LOADED) return true;
+        if (state == REFERENCED) {
+            person.setUnresolved(association, BinaryFields.getLong(buffer));
+        } else {
+            person.setUnresolved(association);
+        }
+        return false;
+    }
+}
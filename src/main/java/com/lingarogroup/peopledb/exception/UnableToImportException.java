@@ -0,0 +1,7 @@
+package com.lingarogroup.peopledb.exception;
+
+public class UnableToImportException extends RuntimeException {
+    public UnableToImportException(String message) {
+        super(message);
+    }
+}
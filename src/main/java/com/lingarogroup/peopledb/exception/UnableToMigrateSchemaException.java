@@ -0,0 +1,7 @@
+package com.lingarogroup.peopledb.exception;
+
+public class UnableToMigrateSchemaException extends RuntimeException {
+    public UnableToMigrateSchemaException(String message) {
+        super(message);
+    }
+}
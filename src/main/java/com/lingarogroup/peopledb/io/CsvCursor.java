@@ -0,0 +1,231 @@
+package com.lingarogroup.peopledb.io;
+
+import com.lingarogroup.peopledb.exception.UnableToImportException;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Arrays;
+
+/**
+ * This class moves over the rows of a part of a CSV file held in a ByteBuffer (see MappedCsvReader.split).
+ * The fields of the current row are kept as start and end offsets into the buffer, so moving to the next row allocates nothing.
+ * The fields are read straight from the bytes; only getString builds a String.
+ * Fields are separated by commas and rows by new lines (with an optional carriage return). Quoted fields are not supported.
+ * A cursor is not thread-safe, every thread should read its own part of the file.
+ */
+public final class CsvCursor {
+    private static final int INITIAL_FIELDS = 16;
+    private static final int MAX_LONG_DIGITS = 18;
+
+    private final ByteBuffer buffer;
+    private final int limit;
+    private int position;
+    private int rowStart;
+    private int rowEnd;
+    private int fieldCount;
+    private int[] fieldStarts = new int[INITIAL_FIELDS];
+    private int[] fieldEnds = new int[INITIAL_FIELDS];
+    private byte[] scratch = new byte[64];
+
+    CsvCursor(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.limit = buffer.limit();
+    }
+
+    /**
+     * This method moves to the next row, skipping blank lines.
+     *
+     * @return true if there is a next row, false at the end of the part.
+     */
+    public boolean next() {
+        while (position < limit) {
+            rowStart = position;
+            fieldCount = 0;
+            int fieldStart = position;
+            int index = position;
+            while (index < limit && buffer.get(index) != '\n') {
+                if (buffer.get(index) == ',') {
+                    addField(fieldStart, index);
+                    fieldStart = index + 1;
+                }
+                index++;
+            }
+            position = index + 1;
+            rowEnd = index > rowStart && buffer.get(index - 1) == '\r' ? index - 1 : index;
+            if (rowEnd == rowStart) continue;
+            addField(fieldStart, Math.max(fieldStart, rowEnd));
+            return true;
+        }
+        return false;
+    }
+
+    public int getFieldCount() {
+        return fieldCount;
+    }
+
+    public boolean isEmpty(int field) {
+        return fieldEnds[checkField(field)] == fieldStarts[field];
+    }
+
+    public String getString(int field) {
+        int start = fieldStarts[checkField(field)];
+        int length = fieldEnds[field] - start;
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        buffer.get(start, scratch, 0, length);
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    public long getLong(int field) {
+        int start = fieldStarts[checkField(field)];
+        int end = fieldEnds[field];
+        boolean negative = start < end && buffer.get(start) == '-';
+        int index = negative ? start + 1 : start;
+        if (index == end || end - index > MAX_LONG_DIGITS) {
+            throw invalid(field, "number");
+        }
+        long value = 0;
+        for (; index < end; index++) {
+            value = value * 10 + digit(index, field, "number");
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * This method reads a decimal number like 73000.50 or -12, without building a String,
+     * unless it has too many digits to fit into a long.
+     */
+    public BigDecimal getDecimal(int field) {
+        int start = fieldStarts[checkField(field)];
+        int end = fieldEnds[field];
+        boolean signed = start < end && (buffer.get(start) == '-' || buffer.get(start) == '+');
+        boolean negative = signed && buffer.get(start) == '-';
+        int index = signed ? start + 1 : start;
+        if (index == end) {
+            throw invalid(field, "decimal");
+        }
+        if (end - index > MAX_LONG_DIGITS) {
+            try {
+                return new BigDecimal(getString(field));
+            } catch (NumberFormatException e) {
+                throw invalid(field, "decimal");
+            }
+        }
+        long unscaled = 0;
+        int scale = -1;
+        for (; index < end; index++) {
+            if (buffer.get(index) == '.' && scale < 0) {
+                scale = 0;
+                continue;
+            }
+            unscaled = unscaled * 10 + digit(index, field, "decimal");
+            if (scale >= 0) scale++;
+        }
+        return BigDecimal.valueOf(negative ? -unscaled : unscaled, Math.max(scale, 0));
+    }
+
+    /**
+     * This method reads a date in the M/d/yyyy format, e.g. 11/5/1980.
+     */
+    public LocalDate getDate(int field) {
+        int start = fieldStarts[checkField(field)];
+        int end = fieldEnds[field];
+        int monthEnd = indexOf('/', start, end, field, "date");
+        int dayEnd = indexOf('/', monthEnd + 1, end, field, "date");
+        try {
+            return LocalDate.of(parseInt(dayEnd + 1, end, field, "date"), parseInt(start, monthEnd, field, "date"),
+                    parseInt(monthEnd + 1, dayEnd, field, "date"));
+        } catch (DateTimeException e) {
+            throw invalid(field, "date");
+        }
+    }
+
+    /**
+     * This method reads a time in the hh:mm:ss a format, e.g. 03:15:01 PM.
+     */
+    public LocalTime getTime(int field) {
+        int start = fieldStarts[checkField(field)];
+        int end = fieldEnds[field];
+        int hourEnd = indexOf(':', start, end, field, "time");
+        int minuteEnd = indexOf(':', hourEnd + 1, end, field, "time");
+        int secondEnd = indexOf(' ', minuteEnd + 1, end, field, "time");
+        if (end - secondEnd != 3 || (buffer.get(end - 1) | 0x20) != 'm') {
+            throw invalid(field, "time");
+        }
+        int marker = buffer.get(secondEnd + 1) | 0x20;
+        if (marker != 'a' && marker != 'p') {
+            throw invalid(field, "time");
+        }
+        int hour = parseInt(start, hourEnd, field, "time");
+        if (hour < 1 || hour > 12) {
+            throw invalid(field, "time");
+        }
+        try {
+            return LocalTime.of(hour % 12 + (marker == 'p' ? 12 : 0), parseInt(hourEnd + 1, minuteEnd, field, "time"),
+                    parseInt(minuteEnd + 1, secondEnd, field, "time"));
+        } catch (DateTimeException e) {
+            throw invalid(field, "time");
+        }
+    }
+
+    /**
+     * This method returns the current row as a String, e.g. for error messages.
+     */
+    public String rowToString() {
+        byte[] row = new byte[rowEnd - rowStart];
+        buffer.get(rowStart, row);
+        return new String(row, StandardCharsets.UTF_8);
+    }
+
+    private void addField(int start, int end) {
+        if (fieldCount == fieldStarts.length) {
+            fieldStarts = Arrays.copyOf(fieldStarts, fieldCount * 2);
+            fieldEnds = Arrays.copyOf(fieldEnds, fieldCount * 2);
+        }
+        fieldStarts[fieldCount] = start;
+        fieldEnds[fieldCount] = end;
+        fieldCount++;
+    }
+
+    private int checkField(int field) {
+        if (field < 0 || field >= fieldCount) {
+            throw new UnableToImportException("Missing field " + field + " in row: " + rowToString());
+        }
+        return field;
+    }
+
+    private int indexOf(char character, int start, int end, int field, String type) {
+        for (int index = start; index < end; index++) {
+            if (buffer.get(index) == character) return index;
+        }
+        throw invalid(field, type);
+    }
+
+    private int parseInt(int start, int end, int field, String type) {
+        if (start >= end || end - start > 9) {
+            throw invalid(field, type);
+        }
+        int value = 0;
+        for (int index = start; index < end; index++) {
+            value = value * 10 + digit(index, field, type);
+        }
+        return value;
+    }
+
+    private int digit(int index, int field, String type) {
+        int digit = buffer.get(index) - '0';
+        if (digit < 0 || digit > 9) {
+            throw invalid(field, type);
+        }
+        return digit;
+    }
+
+    private UnableToImportException invalid(int field, String type) {
+        return new UnableToImportException("Invalid " + type + " '" + getString(field) + "' in row: " + rowToString());
+    }
+}
@@ -0,0 +1,15 @@
+package com.lingarogroup.peopledb.io;
+
+/**
+ * This enum lists the file formats of the TableExporter.
+ */
+public enum ExportFormat {
+    /**
+     * Comma-separated values, with a header line. Values with commas, quotes or new lines are quoted, and NULL is an empty value.
+     */
+    CSV,
+    /**
+     * Length-prefixed binary rows, see TableExporter for the layout.
+     */
+    BINARY
+}
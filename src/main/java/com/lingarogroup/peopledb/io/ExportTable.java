@@ -0,0 +1,57 @@
+package com.lingarogroup.peopledb.io;
+
+import com.lingarogroup.peopledb.repository.AddressRepository;
+import com.lingarogroup.peopledb.repository.PeopleRepository;
+
+import java.sql.Types;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * This enum lists the tables the TableExporter can export, with their columns and the JDBC types the columns are read as.
+ */
+public enum ExportTable {
+    PEOPLE(List.of(
+            new Column(PeopleRepository.ID, Types.BIGINT),
+            new Column(PeopleRepository.FIRST_NAME, Types.VARCHAR),
+            new Column(PeopleRepository.LAST_NAME, Types.VARCHAR),
+            new Column(PeopleRepository.DOB, Types.TIMESTAMP),
+            new Column(PeopleRepository.SALARY, Types.NUMERIC),
+            new Column(PeopleRepository.EMAIL, Types.VARCHAR),
+            new Column(PeopleRepository.HOME_ADDRESS, Types.BIGINT),
+            new Column(PeopleRepository.SECONDARY_ADDRESS, Types.BIGINT),
+            new Column(PeopleRepository.SPOUSE, Types.BIGINT),
+            new Column(PeopleRepository.PARENT_ID, Types.BIGINT))),
+    ADDRESSES(List.of(
+            new Column(AddressRepository.ID, Types.BIGINT),
+            new Column(AddressRepository.STREET_ADDRESS, Types.VARCHAR),
+            new Column(AddressRepository.ADDRESS_2, Types.VARCHAR),
+            new Column(AddressRepository.CITY, Types.VARCHAR),
+            new Column(AddressRepository.STATE, Types.VARCHAR),
+            new Column(AddressRepository.POSTCODE, Types.VARCHAR),
+            new Column(AddressRepository.COUNTRY, Types.VARCHAR),
+            new Column(AddressRepository.COUNTY, Types.VARCHAR),
+            new Column(AddressRepository.REGION, Types.VARCHAR)));
+
+    private final List<Column> columns;
+    private final String sql;
+
+    ExportTable(List<Column> columns) {
+        this.columns = columns;
+        this.sql = "SELECT " + columns.stream().map(Column::name).collect(Collectors.joining(", ")) + " FROM " + name() + " ORDER BY ID";
+    }
+
+    List<Column> getColumns() {
+        return columns;
+    }
+
+    String getSql() {
+        return sql;
+    }
+
+    /**
+     * @param name The name of the column.
+     * @param type The java.sql.Types constant the column is read and written as.
+     */
+    record Column(String name, int type) {}
+}
@@ -0,0 +1,22 @@
+package com.lingarogroup.peopledb.io;
+
+import java.time.Duration;
+
+/**
+ * This record reports how far an import has got.
+ *
+ * @param rowsImported The number of rows saved and committed so far.
+ * @param elapsed The time since the import started.
+ */
+public record ImportProgress(long rowsImported, Duration elapsed) {
+
+    public double rowsPerSecond() {
+        long nanos = elapsed.toNanos();
+        return nanos == 0 ? 0 : rowsImported * 1_000_000_000.0 / nanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d rows in %d ms (%.0f rows/s)", rowsImported, elapsed.toMillis(), rowsPerSecond());
+    }
+}
@@ -0,0 +1,114 @@
+package com.lingarogroup.peopledb.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This class reads a CSV file through memory-mapped parts of its FileChannel instead of decoding it line by line into Strings.
+ * The first line is the header. The rest of the file can be split at line boundaries into several parts,
+ * each read by its own CsvCursor, so several threads can read one file in parallel.
+ * The file is expected to be encoded in UTF-8 (or ASCII).
+ */
+public class MappedCsvReader implements AutoCloseable {
+    // a mapped part must fit into a ByteBuffer, so bigger files are split into more parts
+    static final long MAX_SPLIT_SIZE = Integer.MAX_VALUE / 2;
+    private static final int SCAN_BUFFER_SIZE = 8 * 1024;
+    private static final byte[] BYTE_ORDER_MARK = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+
+    private final FileChannel channel;
+    private final long size;
+    private final long dataStart;
+    private final List<String> header;
+
+    public MappedCsvReader(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            size = channel.size();
+            dataStart = lineEndAfter(0);
+            header = readHeader();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * This method returns the column names of the header line, trimmed. It is empty if the file is empty.
+     */
+    public List<String> getHeader() {
+        return header;
+    }
+
+    /**
+     * This method splits the rows after the header into about the given number of parts of similar size.
+     * Every part starts at the beginning of a line and ends after the end of a line, so no row is split.
+     * There can be fewer parts if the file is small, and more if a part would be too big to be mapped.
+     *
+     * @param parts The wanted number of parts, must be greater than 0.
+     * @return A cursor for every part, in the order of the file.
+     */
+    public List<CsvCursor> split(int parts) throws IOException {
+        if (parts < 1) {
+            throw new IllegalArgumentException("Parts must be greater than 0, but was: " + parts);
+        }
+        long dataLength = size - dataStart;
+        int splits = (int) Math.max(parts, (dataLength + MAX_SPLIT_SIZE - 1) / MAX_SPLIT_SIZE);
+        List<CsvCursor> cursors = new ArrayList<>(splits);
+        long splitStart = dataStart;
+        for (int i = 1; i <= splits && splitStart < size; i++) {
+            long splitEnd = i == splits ? size : lineEndAfter(dataStart + dataLength * i / splits);
+            if (splitEnd > splitStart) {
+                cursors.add(new CsvCursor(channel.map(FileChannel.MapMode.READ_ONLY, splitStart, splitEnd - splitStart)));
+                splitStart = splitEnd;
+            }
+        }
+        return cursors;
+    }
+
+    /**
+     * This method returns the position after the end of the line that the byte before the position belongs to,
+     * so it returns the position itself if it is already the beginning of a line.
+     */
+    private long lineEndAfter(long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        long scanned = Math.max(position - 1, 0);
+        while (scanned < size) {
+            buffer.clear();
+            int read = channel.read(buffer, scanned);
+            if (read < 0) break;
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return scanned + i + 1;
+                }
+            }
+            scanned += read;
+        }
+        return size;
+    }
+
+    private List<String> readHeader() throws IOException {
+        if (dataStart == 0) {
+            return List.of();
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(dataStart, Integer.MAX_VALUE));
+        while (buffer.hasRemaining() && channel.read(buffer, buffer.position()) >= 0) {
+            // reads until the buffer is full
+        }
+        byte[] bytes = Arrays.copyOf(buffer.array(), buffer.position());
+        int start = bytes.length >= 3 && Arrays.equals(bytes, 0, 3, BYTE_ORDER_MARK, 0, 3) ? 3 : 0;
+        String line = new String(bytes, start, bytes.length - start, StandardCharsets.UTF_8).strip();
+        return line.isEmpty() ? List.of() : Arrays.stream(line.split(",", -1)).map(String::trim).toList();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
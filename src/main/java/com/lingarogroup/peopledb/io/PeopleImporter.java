@@ -0,0 +1,247 @@
+package com.lingarogroup.peopledb.io;
+
+import com.lingarogroup.peopledb.exception.UnableToImportException;
+import com.lingarogroup.peopledb.model.Person;
+import com.lingarogroup.peopledb.repository.PeopleRepository;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * This class imports people from an employee CSV file (like Hr5m.csv) into a PeopleRepository.
+ * The import is a pipeline of two stages connected by a bounded queue:
+ * the file is memory-mapped and split at line boundaries (see MappedCsvReader), several parser threads each turn
+ * their own part of the file into chunks of people, and the calling thread saves them with saveAll,
+ * committing a transaction every commit interval rows.
+ * When the parsers are faster than the writer, they block on the full queue, so the memory use stays bounded.
+ * The parsers work in parallel, so the people are not saved in the order of the file.
+ * The progress is reported to the progress listener after every commit.
+ */
+public class PeopleImporter {
+    public static final int DEFAULT_CHUNK_SIZE = 1000;
+    public static final int DEFAULT_QUEUE_CAPACITY = 16;
+    public static final int DEFAULT_COMMIT_INTERVAL = 100_000;
+
+    // marks the end of a queue, compared by identity
+    private static final List<Person> END_OF_PEOPLE = new ArrayList<>();
+
+    private final PeopleRepository repository;
+    private int parserThreads = Runtime.getRuntime().availableProcessors();
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+    private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+    private int commitInterval = DEFAULT_COMMIT_INTERVAL;
+    private Consumer<ImportProgress> progressListener = progress -> {};
+
+    public PeopleImporter(PeopleRepository repository) {
+        this.repository = repository;
+    }
+
+    public void setParserThreads(int parserThreads) {
+        this.parserThreads = requirePositive(parserThreads, "Parser threads");
+    }
+
+    /**
+     * This method sets how many people are passed from a parser to the writer at once.
+     *
+     * @param chunkSize The number of people per chunk, must be greater than 0.
+     */
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = requirePositive(chunkSize, "Chunk size");
+    }
+
+    /**
+     * This method sets how many chunks may wait for the writer before the parsers are blocked.
+     *
+     * @param queueCapacity The number of chunks in the queue, must be greater than 0.
+     */
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = requirePositive(queueCapacity, "Queue capacity");
+    }
+
+    /**
+     * This method sets after how many saved rows the transaction is committed.
+     * If the Connection of the repository is already in manual-commit mode, the rows join the caller's transaction instead
+     * (see PeopleRepository.inTransaction), and the caller stays responsible for committing them.
+     *
+     * @param commitInterval The number of rows per transaction, must be greater than 0.
+     */
+    public void setCommitInterval(int commitInterval) {
+        this.commitInterval = requirePositive(commitInterval, "Commit interval");
+    }
+
+    public void setProgressListener(Consumer<ImportProgress> progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    /**
+     * This method imports all people from the CSV file. The first line of the file must be the header.
+     *
+     * @param file The CSV file.
+     * @return The final progress, with the number of imported rows and the time it took.
+     * @throws IOException If the file cannot be read.
+     * @throws UnableToImportException If a line cannot be parsed or the import is interrupted.
+     */
+    public ImportProgress importCsv(Path file) throws IOException {
+        long start = System.nanoTime();
+        try (MappedCsvReader reader = new MappedCsvReader(file)) {
+            if (reader.getHeader().isEmpty()) {
+                return new ImportProgress(0, Duration.ofNanos(System.nanoTime() - start));
+            }
+            PersonCsvColumns columns = PersonCsvColumns.fromHeader(reader.getHeader());
+            List<CsvCursor> splits = reader.split(parserThreads);
+            if (splits.isEmpty()) {
+                return new ImportProgress(0, Duration.ofNanos(System.nanoTime() - start));
+            }
+            BlockingQueue<List<Person>> personChunks = new ArrayBlockingQueue<>(queueCapacity);
+            // the first failure of a parser, recorded before the parser signals its end to the writer
+            AtomicReference<Exception> failure = new AtomicReference<>();
+            ExecutorService executor = Executors.newFixedThreadPool(splits.size());
+            try {
+                List<Future<Void>> stages = new ArrayList<>();
+                for (CsvCursor split : splits) {
+                    stages.add(executor.submit(() -> parseSplit(columns, split, personChunks, failure)));
+                }
+                Writer writer = new Writer(personChunks, splits.size(), stages, failure, start);
+                writer.writeAll();
+                return writer.progress();
+            } finally {
+                // stops the parsers if the import failed, e.g. when they are blocked on a full queue
+                executor.shutdownNow();
+                awaitTermination(executor);
+            }
+        }
+    }
+
+    private Void parseSplit(PersonCsvColumns columns, CsvCursor rows, BlockingQueue<List<Person>> personChunks,
+                            AtomicReference<Exception> failure) throws InterruptedException {
+        // the end is not signalled when the parser is interrupted, as then the writer has stopped and nobody takes from the queue
+        try {
+            List<Person> people = new ArrayList<>(chunkSize);
+            while (rows.next()) {
+                people.add(columns.toPerson(rows));
+                if (people.size() == chunkSize) {
+                    personChunks.put(people);
+                    people = new ArrayList<>(chunkSize);
+                }
+            }
+            if (!people.isEmpty()) {
+                personChunks.put(people);
+            }
+        } catch (RuntimeException e) {
+            failure.compareAndSet(null, e);
+            personChunks.put(END_OF_PEOPLE);
+            throw e;
+        }
+        personChunks.put(END_OF_PEOPLE);
+        return null;
+    }
+
+    /**
+     * This method waits until the parsers have stopped, so no parser thread outlives the import.
+     * Every parser stops at its next put on the queue after being interrupted, or at the end of its split.
+     */
+    private static void awaitTermination(ExecutorService executor) {
+        try {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void await(Future<Void> stage) throws IOException {
+        try {
+            stage.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UnableToImportException("Import interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioException) throw ioException;
+            if (e.getCause() instanceof RuntimeException runtimeException) throw runtimeException;
+            throw new UnableToImportException("Import failed: " + e.getCause());
+        }
+    }
+
+    private static int requirePositive(int value, String name) {
+        if (value < 1) {
+            throw new IllegalArgumentException(name + " must be greater than 0, but was: " + value);
+        }
+        return value;
+    }
+
+    /**
+     * This class is the last stage of the pipeline, saving the parsed people in transactions of commit interval rows.
+     */
+    private class Writer {
+        private final BlockingQueue<List<Person>> personChunks;
+        private final List<Future<Void>> stages;
+        private final AtomicReference<Exception> failure;
+        private final long start;
+        private int runningParsers;
+        private long rowsImported;
+
+        Writer(BlockingQueue<List<Person>> personChunks, int parsers, List<Future<Void>> stages,
+               AtomicReference<Exception> failure, long start) {
+            this.personChunks = personChunks;
+            this.runningParsers = parsers;
+            this.stages = stages;
+            this.failure = failure;
+            this.start = start;
+        }
+
+        void writeAll() throws IOException {
+            while (runningParsers > 0) {
+                rowsImported += repository.inTransaction(this::writeTransaction);
+                progressListener.accept(progress());
+            }
+            for (Future<Void> stage : stages) {
+                await(stage);
+            }
+        }
+
+        /**
+         * This method rethrows the failure of a parser,
+         * so the import stops (and rolls back the current transaction) instead of saving the rest of the file.
+         */
+        private void checkFailure() {
+            Exception e = failure.get();
+            if (e instanceof RuntimeException runtimeException) throw runtimeException;
+            if (e != null) throw new UnableToImportException("Import failed: " + e.getMessage());
+        }
+
+        private long writeTransaction() {
+            long rows = 0;
+            try {
+                while (runningParsers > 0 && rows < commitInterval) {
+                    List<Person> people = personChunks.take();
+                    if (people == END_OF_PEOPLE) {
+                        runningParsers--;
+                        checkFailure();
+                        continue;
+                    }
+                    repository.saveAll(people);
+                    rows += people.size();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new UnableToImportException("Import interrupted");
+            }
+            return rows;
+        }
+
+        ImportProgress progress() {
+            return new ImportProgress(rowsImported, Duration.ofNanos(System.nanoTime() - start));
+        }
+    }
+}
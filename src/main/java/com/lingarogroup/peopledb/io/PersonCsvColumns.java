@@ -0,0 +1,66 @@
+package com.lingarogroup.peopledb.io;
+
+import com.lingarogroup.peopledb.exception.UnableToImportException;
+import com.lingarogroup.peopledb.model.Person;
+
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * This class knows where the columns of a person are in the rows of an employee CSV file (like Hr5m.csv),
+ * and turns a row into a Person. The columns are found by their names in the header line, ignoring case.
+ * The date of birth is in the M/d/yyyy format and the time of birth in the hh:mm:ss a format, both in UTC.
+ */
+final class PersonCsvColumns {
+    static final String FIRST_NAME = "first name";
+    static final String LAST_NAME = "last name";
+    static final String DATE_OF_BIRTH = "date of birth";
+    static final String TIME_OF_BIRTH = "time of birth";
+    static final String SALARY = "salary";
+    static final String EMAIL = "e mail";
+
+    private static final ZoneId UTC = ZoneId.of("+0");
+
+    final int firstName;
+    final int lastName;
+    final int dateOfBirth;
+    final int timeOfBirth;
+    final int salary;
+    final int email;
+
+    private PersonCsvColumns(List<String> columns) {
+        firstName = indexOf(columns, FIRST_NAME);
+        lastName = indexOf(columns, LAST_NAME);
+        dateOfBirth = indexOf(columns, DATE_OF_BIRTH);
+        timeOfBirth = indexOf(columns, TIME_OF_BIRTH);
+        salary = indexOf(columns, SALARY);
+        email = indexOf(columns, EMAIL);
+    }
+
+    static PersonCsvColumns fromHeader(List<String> header) {
+        return new PersonCsvColumns(header.stream()
+                .map(column -> column.trim().toLowerCase(Locale.ROOT))
+                .toList());
+    }
+
+    private static int indexOf(List<String> columns, String column) {
+        int index = columns.indexOf(column);
+        if (index < 0) {
+            throw new UnableToImportException("Missing column '" + column + "' in header: " + columns);
+        }
+        return index;
+    }
+
+    /**
+     * This method turns the current row of the cursor into a Person, reading the fields straight from its bytes.
+     */
+    Person toPerson(CsvCursor row) {
+        Person person = new Person(row.getString(firstName), row.getString(lastName),
+                ZonedDateTime.of(row.getDate(dateOfBirth), row.getTime(timeOfBirth), UTC));
+        person.setSalary(row.getDecimal(salary));
+        person.setEmail(row.getString(email));
+        return person;
+    }
+}
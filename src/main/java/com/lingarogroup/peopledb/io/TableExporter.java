@@ -0,0 +1,356 @@
+package com.lingarogroup.peopledb.io;
+
+import com.lingarogroup.peopledb.exception.UnableToLoadException;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * This class exports the rows of a table (see ExportTable) into a file, in the CSV or the binary format (see ExportFormat),
+ * optionally compressed with gzip.
+ * The rows are read from a forward-only, read-only cursor and their values are written straight into a reused buffer,
+ * which is written to a FileChannel when it is full. No entities are built and no rows are collected,
+ * so the memory use does not grow with the size of the table.
+ * Timestamps (the DOB of people) are written in UTC, the way the PeopleRepository saves them.
+ * <p>
+ * The binary format starts with the magic bytes "PDBX", the format version as an int, the number of columns as a short,
+ * and for every column its java.sql.Types constant as an int and its name as a short length and the UTF-8 bytes.
+ * Then every row is an int length, followed by that many bytes with the values of the row in the order of the columns.
+ * Every value starts with a byte, 0 for NULL and 1 otherwise, followed by:
+ * a long for BIGINT, an int length and the UTF-8 bytes for VARCHAR, a long of epoch seconds and an int of nanoseconds for TIMESTAMP,
+ * and an int scale, an int length and the two's-complement bytes of the unscaled value for NUMERIC.
+ * All numbers are big-endian.
+ */
+public class TableExporter {
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    public static final int BINARY_FORMAT_VERSION = 1;
+    static final byte[] BINARY_MAGIC = {'P', 'D', 'B', 'X'};
+
+    private final DataSource dataSource;
+    private int fetchSize = 1000;
+    private int bufferSize = DEFAULT_BUFFER_SIZE;
+    private boolean compressed;
+
+    public TableExporter(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * This method sets how many rows the driver should fetch from the database at once.
+     *
+     * @param fetchSize The number of rows per fetch, must be greater than 0.
+     */
+    public void setFetchSize(int fetchSize) {
+        if (fetchSize < 1) {
+            throw new IllegalArgumentException("Fetch size must be greater than 0, but was: " + fetchSize);
+        }
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * This method sets the size of the buffer which is filled with rows before it is written to the file.
+     *
+     * @param bufferSize The buffer size in bytes, must be greater than 0.
+     */
+    public void setBufferSize(int bufferSize) {
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("Buffer size must be greater than 0, but was: " + bufferSize);
+        }
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * This method sets whether the file is compressed with gzip.
+     */
+    public void setCompressed(boolean compressed) {
+        this.compressed = compressed;
+    }
+
+    public boolean isCompressed() {
+        return compressed;
+    }
+
+    /**
+     * This method exports all rows of the table, ordered by ID, into the file. An existing file is overwritten.
+     *
+     * @param table The table to export.
+     * @param file The file to write.
+     * @param format The format of the file.
+     * @return The number of exported rows.
+     * @throws IOException If the file cannot be written.
+     * @throws UnableToLoadException If a SQLException occurs.
+     */
+    public long export(ExportTable table, Path file, ExportFormat format) throws IOException {
+        List<ExportTable.Column> columns = table.getColumns();
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement ps = connection.prepareStatement(table.getSql(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+             Output output = new Output(open(file), bufferSize)) {
+            ps.setFetchSize(fetchSize);
+            long rows = 0;
+            try (ResultSet rs = ps.executeQuery()) {
+                if (format == ExportFormat.CSV) {
+                    writeCsvHeader(columns, output);
+                    while (rs.next()) {
+                        writeCsvRow(columns, rs, output);
+                        rows++;
+                    }
+                } else {
+                    writeBinaryHeader(columns, output);
+                    ByteBuffer row = ByteBuffer.allocate(1024);
+                    while (rs.next()) {
+                        row = writeBinaryRow(columns, rs, row, output);
+                        rows++;
+                    }
+                }
+            }
+            return rows;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            throw new UnableToLoadException("Unable to export table " + table);
+        }
+    }
+
+    private WritableByteChannel open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        if (!compressed) {
+            return channel;
+        }
+        try {
+            return Channels.newChannel(new GZIPOutputStream(Channels.newOutputStream(channel), bufferSize));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static void writeCsvHeader(List<ExportTable.Column> columns, Output output) throws IOException {
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) output.put((byte) ',');
+            output.put(columns.get(i).name().getBytes(StandardCharsets.UTF_8));
+        }
+        output.put((byte) '\n');
+    }
+
+    private static void writeCsvRow(List<ExportTable.Column> columns, ResultSet rs, Output output) throws SQLException, IOException {
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) output.put((byte) ',');
+            int index = i + 1;
+            switch (columns.get(i).type()) {
+                case Types.BIGINT -> {
+                    long value = rs.getLong(index);
+                    if (!rs.wasNull()) output.putDigits(value);
+                }
+                case Types.TIMESTAMP -> {
+                    Timestamp value = rs.getTimestamp(index);
+                    if (value != null) output.putAscii(value.toLocalDateTime().toString());
+                }
+                case Types.NUMERIC -> {
+                    BigDecimal value = rs.getBigDecimal(index);
+                    if (value != null) output.putAscii(value.toPlainString());
+                }
+                default -> {
+                    String value = rs.getString(index);
+                    if (value != null) putCsvString(value, output);
+                }
+            }
+        }
+        output.put((byte) '\n');
+    }
+
+    private static void putCsvString(String value, Output output) throws IOException {
+        boolean quoted = false;
+        for (int i = 0; i < value.length() && !quoted; i++) {
+            char character = value.charAt(i);
+            quoted = character == ',' || character == '"' || character == '\n' || character == '\r';
+        }
+        if (!quoted) {
+            output.put(value.getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+        output.put((byte) '"');
+        output.put(value.replace("\"", "\"\"").getBytes(StandardCharsets.UTF_8));
+        output.put((byte) '"');
+    }
+
+    private static void writeBinaryHeader(List<ExportTable.Column> columns, Output output) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(1024);
+        header.put(BINARY_MAGIC).putInt(BINARY_FORMAT_VERSION).putShort((short) columns.size());
+        for (ExportTable.Column column : columns) {
+            byte[] name = column.name().getBytes(StandardCharsets.UTF_8);
+            header.putInt(column.type()).putShort((short) name.length).put(name);
+        }
+        output.put(header.array(), header.position());
+    }
+
+    /**
+     * This method encodes the current row into the row buffer, growing it if the row does not fit,
+     * and writes it with its length to the output.
+     *
+     * @return The row buffer, to be reused for the next row.
+     */
+    private static ByteBuffer writeBinaryRow(List<ExportTable.Column> columns, ResultSet rs, ByteBuffer row, Output output)
+            throws SQLException, IOException {
+        row.clear();
+        for (int i = 0; i < columns.size(); i++) {
+            int index = i + 1;
+            switch (columns.get(i).type()) {
+                case Types.BIGINT -> {
+                    long value = rs.getLong(index);
+                    row = ensureCapacity(row, 9);
+                    if (rs.wasNull()) row.put((byte) 0);
+                    else row.put((byte) 1).putLong(value);
+                }
+                case Types.TIMESTAMP -> {
+                    Timestamp value = rs.getTimestamp(index);
+                    row = ensureCapacity(row, 13);
+                    if (value == null) row.put((byte) 0);
+                    else row.put((byte) 1).putLong(value.toLocalDateTime().toEpochSecond(ZoneOffset.UTC)).putInt(value.getNanos());
+                }
+                case Types.NUMERIC -> {
+                    BigDecimal value = rs.getBigDecimal(index);
+                    if (value == null) {
+                        row = ensureCapacity(row, 1).put((byte) 0);
+                    } else {
+                        byte[] unscaled = value.unscaledValue().toByteArray();
+                        row = ensureCapacity(row, 9 + unscaled.length);
+                        row.put((byte) 1).putInt(value.scale()).putInt(unscaled.length).put(unscaled);
+                    }
+                }
+                default -> {
+                    String value = rs.getString(index);
+                    if (value == null) {
+                        row = ensureCapacity(row, 1).put((byte) 0);
+                    } else {
+                        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                        row = ensureCapacity(row, 5 + bytes.length);
+                        row.put((byte) 1).putInt(bytes.length).put(bytes);
+                    }
+                }
+            }
+        }
+        output.putInt(row.position());
+        output.put(row.array(), row.position());
+        return row;
+    }
+
+    private static ByteBuffer ensureCapacity(ByteBuffer buffer, int bytes) {
+        if (buffer.remaining() >= bytes) {
+            return buffer;
+        }
+        ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+        return grown.put(buffer.flip());
+    }
+
+    /**
+     * This class buffers the bytes written to the file, and writes the buffer to the channel when it is full.
+     */
+    private static final class Output implements AutoCloseable {
+        private final WritableByteChannel channel;
+        private final ByteBuffer buffer;
+
+        Output(WritableByteChannel channel, int bufferSize) {
+            this.channel = channel;
+            this.buffer = ByteBuffer.allocateDirect(Math.max(bufferSize, Long.BYTES));
+        }
+
+        void put(byte value) throws IOException {
+            if (!buffer.hasRemaining()) flush();
+            buffer.put(value);
+        }
+
+        void putInt(int value) throws IOException {
+            if (buffer.remaining() < Integer.BYTES) flush();
+            buffer.putInt(value);
+        }
+
+        void put(byte[] bytes) throws IOException {
+            put(bytes, bytes.length);
+        }
+
+        void put(byte[] bytes, int length) throws IOException {
+            if (buffer.remaining() < length) {
+                flush();
+            }
+            if (buffer.remaining() < length) {
+                writeFully(ByteBuffer.wrap(bytes, 0, length));
+            } else {
+                buffer.put(bytes, 0, length);
+            }
+        }
+
+        void putAscii(String value) throws IOException {
+            if (buffer.remaining() < value.length()) flush();
+            if (buffer.remaining() < value.length()) {
+                put(value.getBytes(StandardCharsets.US_ASCII));
+                return;
+            }
+            for (int i = 0; i < value.length(); i++) {
+                buffer.put((byte) value.charAt(i));
+            }
+        }
+
+        /**
+         * This method writes the decimal digits of the value without building a String.
+         */
+        void putDigits(long value) throws IOException {
+            if (value == Long.MIN_VALUE) {
+                putAscii(Long.toString(value));
+                return;
+            }
+            if (buffer.remaining() < 20) flush();
+            if (value < 0) {
+                buffer.put((byte) '-');
+                value = -value;
+            }
+            int start = buffer.position();
+            do {
+                buffer.put((byte) ('0' + value % 10));
+                value /= 10;
+            } while (value > 0);
+            // the digits were written from the lowest one, so they are reversed in place
+            for (int left = start, right = buffer.position() - 1; left < right; left++, right--) {
+                byte digit = buffer.get(left);
+                buffer.put(left, buffer.get(right));
+                buffer.put(right, digit);
+            }
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            writeFully(buffer);
+            buffer.clear();
+        }
+
+        private void writeFully(ByteBuffer bytes) throws IOException {
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+            } finally {
+                channel.close();
+            }
+        }
+    }
+}
@@ -6,5 +6,8 @@ public enum CrudOperation {
     DELETE,
     FIND_BY_ID,
     FIND_ALL,
-    COUNT
+    COUNT,
+    DELETE_ALL_BY_ID,
+    FIND_ALL_BY_ID,
+    EXISTS_BY_ID
 }
@@ -0,0 +1,11 @@
+package com.lingarogroup.peopledb.model;
+
+/**
+ * This enum tells how the children of many people are loaded together.
+ * JOIN joins the children onto their parents, repeating the parent columns in every row of a child.
+ * BATCH loads the parents first, and then the children of a whole block of parents with a single query.
+ */
+public enum FetchMode {
+    JOIN,
+    BATCH
+}
@@ -0,0 +1,10 @@
+package com.lingarogroup.peopledb.model;
+
+/**
+ * This enum tells when an association of an entity is loaded from the database:
+ * together with the entity (EAGER), or on the first access to it (LAZY).
+ */
+public enum FetchType {
+    EAGER,
+    LAZY
+}
@@ -0,0 +1,86 @@
+package com.lingarogroup.peopledb.model;
+
+import java.util.function.Supplier;
+
+/**
+ * This class holds a value which is either known upfront or loaded by a Supplier on the first access.
+ * The loader is called at most once, even if several threads access the value at the same time,
+ * and is released after the value is loaded.
+ * An unresolved value has neither a value nor a loader yet, and accessing it throws an IllegalStateException.
+ * A value which is not loaded may carry a reference, i.e. the ID it is loaded by (null if there is no value),
+ * so the value can be identified without loading it.
+ *
+ * @param <V> The type of the value.
+ */
+public final class Lazy<V> implements Supplier<V> {
+    private static final Supplier<?> UNRESOLVED = () -> {
+        throw new IllegalStateException("The value is not loaded and has no loader");
+    };
+
+    private Supplier<? extends V> loader;
+    private V value;
+    private volatile boolean loaded;
+    private final boolean referenced;
+    private final Long reference;
+
+    private Lazy(V value, Supplier<? extends V> loader, boolean loaded, boolean referenced, Long reference) {
+        this.value = value;
+        this.loader = loader;
+        this.loaded = loaded;
+        this.referenced = referenced;
+        this.reference = reference;
+    }
+
+    public static <V> Lazy<V> of(V value) {
+        return new Lazy<>(value, null, true, false, null);
+    }
+
+    public static <V> Lazy<V> loading(Supplier<? extends V> loader) {
+        return new Lazy<>(null, loader, false, false, null);
+    }
+
+    public static <V> Lazy<V> loading(Long reference, Supplier<? extends V> loader) {
+        return new Lazy<>(null, loader, false, true, reference);
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <V> Lazy<V> unresolved() {
+        return new Lazy<>(null, (Supplier<? extends V>) UNRESOLVED, false, false, null);
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <V> Lazy<V> unresolved(Long reference) {
+        return new Lazy<>(null, (Supplier<? extends V>) UNRESOLVED, false, true, reference);
+    }
+
+    @Override
+    public V get() {
+        if (!loaded) {
+            synchronized (this) {
+                if (!loaded) {
+                    value = loader.get();
+                    loader = null;
+                    loaded = true;
+                }
+            }
+        }
+        return value;
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public boolean isUnresolved() {
+        // the placeholder loader always throws, so it is never released
+        return loader == UNRESOLVED;
+    }
+
+    public boolean isReferenced() {
+        return referenced;
+    }
+
+    public Long getReference() {
+        return reference;
+    }
+}
@@ -0,0 +1,22 @@
+package com.lingarogroup.peopledb.model;
+
+import java.util.List;
+
+/**
+ * This record holds a single page of entities read with keyset (seek) pagination.
+ * The next page is requested with the nextAfterId cursor, which is the ID of the last entity of this page.
+ *
+ * @param content The entities of this page, ordered by ID.
+ * @param nextAfterId The cursor for the next page, or null if this is the last page.
+ * @param <T> The type of the entities.
+ */
+public record Page<T>(List<T> content, Long nextAfterId) {
+
+    public Page {
+        content = List.copyOf(content);
+    }
+
+    public boolean hasNext() {
+        return nextAfterId != null;
+    }
+}
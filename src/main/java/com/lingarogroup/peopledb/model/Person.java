@@ -9,6 +9,7 @@ import java.util.HashSet;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Supplier;
 
 public class Person {
     @Id
@@ -19,10 +20,10 @@ public class Person {
     private ZonedDateTime dateOfBirth;
     private BigDecimal salary = BigDecimal.ZERO;
     private String email;
-    private Optional<Address> homeAddress = Optional.empty();
-    private Optional<Address> secondaryAddress = Optional.empty();
-    private Optional<Person> spouse = Optional.empty();
-    private Set<Person> children = new HashSet<>();
+    private Lazy<Optional<Address>> homeAddress = Lazy.of(Optional.empty());
+    private Lazy<Optional<Address>> secondaryAddress = Lazy.of(Optional.empty());
+    private Lazy<Optional<Person>> spouse = Lazy.of(Optional.empty());
+    private Lazy<Set<Person>> children = Lazy.of(new HashSet<>());
     private Optional<Person> parent = Optional.empty();
 
     public Person(String firstname, String lastName, ZonedDateTime dateOfBirth) {
@@ -115,31 +116,167 @@ public class Person {
     }
 
     public void setHomeAddress(Address homeAddress) {
-        this.homeAddress = Optional.ofNullable(homeAddress);
+        this.homeAddress = Lazy.of(Optional.ofNullable(homeAddress));
+    }
+
+    /**
+     * This method makes the home address lazy, so it is loaded by the loader on the first call to getHomeAddress.
+     *
+     * @param loader The loader of the home address.
+     */
+    public void setHomeAddressLoader(Supplier<Optional<Address>> loader) {
+        this.homeAddress = Lazy.loading(loader);
+    }
+
+    /**
+     * This method makes the home address lazy like setHomeAddressLoader(Supplier), and remembers the ID it is loaded by,
+     * so e.g. a cache can store the reference instead of the address (see getReference).
+     *
+     * @param homeAddressId The ID of the home address, or null if there is none.
+     * @param loader The loader of the home address.
+     */
+    public void setHomeAddressLoader(Long homeAddressId, Supplier<Optional<Address>> loader) {
+        this.homeAddress = Lazy.loading(homeAddressId, loader);
     }
 
     public Optional<Address> getHomeAddress() {
-        return homeAddress;
+        return homeAddress.get();
     }
 
     public void setSecondaryAddress(Address secondaryAddress) {
-        this.secondaryAddress = Optional.ofNullable(secondaryAddress);
+        this.secondaryAddress = Lazy.of(Optional.ofNullable(secondaryAddress));
+    }
+
+    public void setSecondaryAddressLoader(Supplier<Optional<Address>> loader) {
+        this.secondaryAddress = Lazy.loading(loader);
+    }
+
+    public void setSecondaryAddressLoader(Long secondaryAddressId, Supplier<Optional<Address>> loader) {
+        this.secondaryAddress = Lazy.loading(secondaryAddressId, loader);
     }
 
     public Optional<Address> getSecondaryAddress() {
-        return secondaryAddress;
+        return secondaryAddress.get();
     }
 
     public void setSpouse(Person spouse) {
-        this.spouse = Optional.ofNullable(spouse);
+        this.spouse = Lazy.of(Optional.ofNullable(spouse));
+    }
+
+    public void setSpouseLoader(Supplier<Optional<Person>> loader) {
+        this.spouse = Lazy.loading(loader);
+    }
+
+    public void setSpouseLoader(Long spouseId, Supplier<Optional<Person>> loader) {
+        this.spouse = Lazy.loading(spouseId, loader);
     }
 
     public Optional<Person> getSpouse() {
-        return spouse;
+        return spouse.get();
+    }
+
+    /**
+     * This method makes the children lazy, so they are loaded by the loader on the first call to getChildren or addChild.
+     * The loaded children get this person as their parent.
+     *
+     * @param loader The loader of the children.
+     */
+    public void setChildrenLoader(Supplier<Set<Person>> loader) {
+        this.children = Lazy.loading(() -> {
+            Set<Person> loadedChildren = new HashSet<>(loader.get());
+            loadedChildren.forEach(child -> child.setParent(this));
+            return loadedChildren;
+        });
+    }
+
+    /**
+     * This method tells whether an association is already loaded, i.e. whether accessing it won't query the database.
+     *
+     * @param association The association to check.
+     * @return true if the association is loaded.
+     */
+    public boolean isLoaded(PersonAssociation association) {
+        return switch (association) {
+            case HOME_ADDRESS -> homeAddress.isLoaded();
+            case SECONDARY_ADDRESS -> secondaryAddress.isLoaded();
+            case SPOUSE -> spouse.isLoaded();
+            case CHILDREN -> children.isLoaded();
+        };
+    }
+
+    /**
+     * This method leaves an association without a value and without a loader, e.g. in a person decoded from a cache
+     * which didn't store the association because it wasn't loaded. Accessing the association throws an IllegalStateException
+     * until a value or a loader is set; PeopleRepository sets the loaders of the unresolved associations of the people it returns.
+     *
+     * @param association The association to leave unresolved.
+     */
+    public void setUnresolved(PersonAssociation association) {
+        switch (association) {
+            case HOME_ADDRESS -> homeAddress = Lazy.unresolved();
+            case SECONDARY_ADDRESS -> secondaryAddress = Lazy.unresolved();
+            case SPOUSE -> spouse = Lazy.unresolved();
+            case CHILDREN -> children = Lazy.unresolved();
+        }
+    }
+
+    /**
+     * This method leaves an association unresolved like setUnresolved(PersonAssociation), but keeps the ID it is loaded by,
+     * e.g. the foreign key stored by a cache, so the loader can be set up without looking the ID up again.
+     *
+     * @param association The association to leave unresolved; the children are not referenced by an ID.
+     * @param id The ID of the associated entity, or null if there is none.
+     */
+    public void setUnresolved(PersonAssociation association, Long id) {
+        switch (association) {
+            case HOME_ADDRESS -> homeAddress = Lazy.unresolved(id);
+            case SECONDARY_ADDRESS -> secondaryAddress = Lazy.unresolved(id);
+            case SPOUSE -> spouse = Lazy.unresolved(id);
+            case CHILDREN -> throw new IllegalArgumentException("Association must be referenced by an ID, but was: " + association);
+        }
+    }
+
+    public boolean isUnresolved(PersonAssociation association) {
+        return switch (association) {
+            case HOME_ADDRESS -> homeAddress.isUnresolved();
+            case SECONDARY_ADDRESS -> secondaryAddress.isUnresolved();
+            case SPOUSE -> spouse.isUnresolved();
+            case CHILDREN -> children.isUnresolved();
+        };
+    }
+
+    /**
+     * This method tells whether the ID of an association which is not loaded yet is known, see getReference.
+     *
+     * @param association The association to check.
+     * @return true if the association was set up with the ID it is loaded by.
+     */
+    public boolean isReferenced(PersonAssociation association) {
+        return switch (association) {
+            case HOME_ADDRESS -> homeAddress.isReferenced();
+            case SECONDARY_ADDRESS -> secondaryAddress.isReferenced();
+            case SPOUSE -> spouse.isReferenced();
+            case CHILDREN -> children.isReferenced();
+        };
+    }
+
+    /**
+     * This method returns the ID an association is loaded by, e.g. the foreign key of the PEOPLE row.
+     *
+     * @param association The association to get the ID of.
+     * @return The ID, or null if there is no associated entity or the ID is not known (see isReferenced).
+     */
+    public Long getReference(PersonAssociation association) {
+        return switch (association) {
+            case HOME_ADDRESS -> homeAddress.getReference();
+            case SECONDARY_ADDRESS -> secondaryAddress.getReference();
+            case SPOUSE -> spouse.getReference();
+            case CHILDREN -> children.getReference();
+        };
     }
 
     public void addChild(Person child) {
-        children.add(child);
+        children.get().add(child);
         child.setParent(this);
     }
 
@@ -152,6 +289,6 @@ public class Person {
     }
 
     public Set<Person> getChildren() {
-        return children;
+        return children.get();
     }
 }
@@ -0,0 +1,11 @@
+package com.lingarogroup.peopledb.model;
+
+/**
+ * This enum lists the associations of a Person which can be fetched eagerly or lazily.
+ */
+public enum PersonAssociation {
+    HOME_ADDRESS,
+    SECONDARY_ADDRESS,
+    SPOUSE,
+    CHILDREN
+}
@@ -0,0 +1,18 @@
+package com.lingarogroup.peopledb.model;
+
+import java.math.BigDecimal;
+import java.time.ZonedDateTime;
+
+/**
+ * This record holds the columns of a person read by a projection query or by findBasicById, without any associations.
+ * The columns which were not part of the projection are null.
+ *
+ * @param id The ID of the person, always read.
+ * @param firstName The first name, or null if not projected.
+ * @param lastName The last name, or null if not projected.
+ * @param dateOfBirth The date of birth in UTC, or null if not projected.
+ * @param salary The salary, or null if not projected.
+ * @param email The email, or null if not projected.
+ */
+public record PersonSummary(Long id, String firstName, String lastName, ZonedDateTime dateOfBirth, BigDecimal salary, String email) {
+}
@@ -1,20 +1,55 @@
 package com.lingarogroup.peopledb.repository;
 
 import com.lingarogroup.peopledb.annotation.SQL;
+import com.lingarogroup.peopledb.exception.UnableToDeleteException;
 import com.lingarogroup.peopledb.exception.UnableToInitializeRepositoryException;
+import com.lingarogroup.peopledb.exception.UnableToLoadException;
+import com.lingarogroup.peopledb.exception.UnableToSaveException;
 import com.lingarogroup.peopledb.model.Address;
 import com.lingarogroup.peopledb.model.CrudOperation;
 import com.lingarogroup.peopledb.model.Region;
 
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Array;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 public class AddressRepository extends CRUDRepository<Address> {
 
     public static final String SAVE_ADDRESS_SQL = "INSERT INTO ADDRESSES (STREET_ADDRESS, ADDRESS2, CITY, STATE, POSTCODE, COUNTRY, COUNTY, REGION) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
     public static final String FIND_BY_ID_SQL = "SELECT * FROM ADDRESSES WHERE ID = ?";
+    public static final String FIND_ALL_SQL = "SELECT * FROM ADDRESSES ORDER BY ID";
+    public static final String FIND_ADDRESSES_BY_IDS_SQL = "SELECT * FROM ADDRESSES WHERE ID = ANY(?)";
+    public static final String EXISTS_ADDRESS_BY_ID_SQL = "SELECT 1 FROM ADDRESSES WHERE ID = ?";
+    public static final String COUNT_ALL_SQL = "SELECT COUNT(*) AS COUNT FROM ADDRESSES";
+    public static final String DELETE_ADDRESS_SQL = "DELETE FROM ADDRESSES WHERE ID = ?";
+    public static final String DELETE_ADDRESSES_BY_IDS_SQL = "DELETE FROM ADDRESSES WHERE ID = ANY(?)";
+    // the addresses among the given ones which are no longer the home or secondary address of anybody
+    public static final String DELETE_ORPHANED_ADDRESSES_SQL = """
+            DELETE FROM ADDRESSES AS a
+            WHERE a.ID = ANY(?)
+            AND NOT EXISTS (SELECT 1 FROM PEOPLE AS p WHERE p.HOME_ADDRESS = a.ID OR p.SECONDARY_ADDRESS = a.ID)
+            """;
+    public static final String UPDATE_ADDRESS_SQL = "UPDATE ADDRESSES SET STREET_ADDRESS = ?, ADDRESS2 = ?, CITY = ?, STATE = ?, POSTCODE = ?, COUNTRY = ?, COUNTY = ?, REGION = ? WHERE ID = ?";
+    public static final String SAVE_ADDRESS_WITH_HASH_SQL = "INSERT INTO ADDRESSES (STREET_ADDRESS, ADDRESS2, CITY, STATE, POSTCODE, COUNTRY, COUNTY, REGION, CONTENT_HASH) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    public static final String UPDATE_ADDRESS_WITH_HASH_SQL = "UPDATE ADDRESSES SET STREET_ADDRESS = ?, ADDRESS2 = ?, CITY = ?, STATE = ?, POSTCODE = ?, COUNTRY = ?, COUNTY = ?, REGION = ?, CONTENT_HASH = ? WHERE ID = ?";
+    public static final String FIND_ID_BY_CONTENT_HASH_SQL = "SELECT ID FROM ADDRESSES WHERE CONTENT_HASH = ?";
+    public static final String ADD_CONTENT_HASH_COLUMN_SQL = "ALTER TABLE ADDRESSES ADD COLUMN IF NOT EXISTS CONTENT_HASH VARCHAR(64)";
+    public static final String CREATE_CONTENT_HASH_INDEX_SQL = "CREATE UNIQUE INDEX IF NOT EXISTS ADDRESSES_CONTENT_HASH_IDX ON ADDRESSES (CONTENT_HASH)";
+    public static final int DEFAULT_CONTENT_HASH_CACHE_SIZE = 100_000;
     public static final String ID = "ID";
     public static final String STREET_ADDRESS = "STREET_ADDRESS";
     public static final String ADDRESS_2 = "ADDRESS2";
@@ -24,14 +59,343 @@ public class AddressRepository extends CRUDRepository<Address> {
     public static final String COUNTRY = "COUNTRY";
     public static final String COUNTY = "COUNTY";
     public static final String REGION = "REGION";
+    public static final String CONTENT_HASH = "CONTENT_HASH";
+
+    // used to separate the fields of an address when hashing it, and to mark the null fields
+    private static final char FIELD_SEPARATOR = '\u001F';
+    private static final char NULL_FIELD = '\u0000';
+
+    private volatile boolean deduplicating;
+    // whether the ADDRESSES table has the CONTENT_HASH column, looked up on the first update; null until then
+    private volatile Boolean contentHashColumn;
+    // content hash -> ID of the address, and the reverse, guarded by the lock of idsByContentHash
+    private final Map<String, Long> idsByContentHash;
+    private final Map<Long, String> contentHashesById = new HashMap<>();
+
+    {
+        // access order makes the LinkedHashMap iterate from the least to the most recently used address
+        idsByContentHash = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                if (size() > DEFAULT_CONTENT_HASH_CACHE_SIZE) {
+                    contentHashesById.remove(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
 
     public AddressRepository(Connection connection) throws UnableToInitializeRepositoryException {
         super(connection);
     }
 
+    public AddressRepository(DataSource dataSource) throws UnableToInitializeRepositoryException {
+        super(dataSource);
+    }
+
+    public AddressRepository(DataSource dataSource, int maxPoolSize) throws UnableToInitializeRepositoryException {
+        super(dataSource, maxPoolSize);
+    }
+
+    AddressRepository(ConnectionProvider connections) throws UnableToInitializeRepositoryException {
+        super(connections);
+    }
+
+    /**
+     * This method turns the content-hash deduplication of addresses on or off.
+     * When it is on, saving an address whose fields are identical to an already saved address doesn't insert a new row,
+     * but assigns the ID of the existing row to the address. The addresses are matched by a SHA-256 hash of their fields,
+     * looked up in an in-memory table of recently saved addresses first, and then in the CONTENT_HASH column.
+     * Only addresses saved or matched outside a transaction are put into the in-memory table, as a rolled back transaction
+     * would leave the IDs of missing rows in it. Inside a transaction, the addresses are matched by the CONTENT_HASH column only,
+     * which also sees the rows inserted earlier in the same transaction.
+     * The hashes are kept in the CONTENT_HASH column of the ADDRESSES table, which is filled on every save and recomputed on every update.
+     * While the deduplication is off, an update clears the hash of the row instead, so a changed address is never matched by its old content.
+     * Turning the deduplication on adds the column and its unique index to the table if they are missing (see createContentHashColumn).
+     * Addresses saved while the deduplication was off have no hash, so they are never matched.
+     * It should be set before the repository is shared between threads.
+     *
+     * @param deduplicating true to deduplicate the saved addresses.
+     * @throws UnableToInitializeRepositoryException If the CONTENT_HASH column or its index cannot be created.
+     */
+    public void setDeduplicating(boolean deduplicating) throws UnableToInitializeRepositoryException {
+        if (deduplicating) {
+            createContentHashColumn();
+        }
+        this.deduplicating = deduplicating;
+    }
+
+    public boolean isDeduplicating() {
+        return deduplicating;
+    }
+
+    /**
+     * This method adds the CONTENT_HASH column and its unique index to the ADDRESSES table, unless they already exist,
+     * so the deduplication also works on tables created before it.
+     * Databases like H2 commit DDL statements implicitly, so the deduplication should be turned on outside a transaction.
+     *
+     * @throws UnableToInitializeRepositoryException If a SQLException occurs.
+     */
+    private void createContentHashColumn() throws UnableToInitializeRepositoryException {
+        try (ConnectionLease lease = connections.acquire();
+             Statement statement = lease.connection().createStatement()) {
+            statement.execute(ADD_CONTENT_HASH_COLUMN_SQL);
+            statement.execute(CREATE_CONTENT_HASH_INDEX_SQL);
+            contentHashColumn = true;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            throw new UnableToInitializeRepositoryException("Unable to create the CONTENT_HASH column: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * This method saves the address, unless it is already saved.
+     * An address which already has an ID is returned as it is, without inserting a new row.
+     * If the deduplication is on (see setDeduplicating) and an identical address is already saved,
+     * the address gets the ID of the existing row instead of being inserted.
+     *
+     * @param address The address that is to be saved.
+     * @return The saved address, complete with its ID.
+     * @throws UnableToSaveException If a SQLException is encountered.
+     */
+    @Override
+    public Address save(Address address) throws UnableToSaveException {
+        if (address.getId() != null) {
+            return address;
+        }
+        if (!deduplicating) {
+            return super.save(address);
+        }
+        String contentHash = contentHash(address);
+        Long existingId = findIdByContentHash(contentHash);
+        if (existingId == null) {
+            try {
+                super.save(address);
+            } catch (UnableToSaveException e) {
+                // another thread may have inserted the same address in the meantime, violating the unique hash
+                existingId = findIdByContentHash(contentHash);
+                if (existingId == null) throw e;
+            }
+        }
+        if (existingId != null) {
+            setIdByAnnotation(address, existingId);
+            registerInSession(address);
+        }
+        if (isAutoCommit()) {
+            rememberContentHash(contentHash, address.getId());
+        }
+        return address;
+    }
+
+    /**
+     * This method saves the addresses which are not saved yet, skipping the addresses which already have an ID.
+     * If the deduplication is on, the addresses are saved one by one, so every address is matched against the saved ones.
+     * Otherwise, they are saved in batches.
+     *
+     * @param addresses The addresses that are to be saved.
+     * @return All the given addresses, complete with their IDs, in iteration order.
+     * @throws UnableToSaveException If a SQLException is encountered.
+     */
+    @Override
+    public List<Address> saveAll(Iterable<Address> addresses) throws UnableToSaveException {
+        List<Address> allAddresses = new ArrayList<>();
+        List<Address> unsavedAddresses = new ArrayList<>();
+        for (Address address : addresses) {
+            allAddresses.add(address);
+            if (address.getId() != null) continue;
+            if (deduplicating) {
+                save(address);
+            } else {
+                unsavedAddresses.add(address);
+            }
+        }
+        if (!unsavedAddresses.isEmpty()) {
+            super.saveAll(unsavedAddresses);
+        }
+        return allAddresses;
+    }
+
+    /**
+     * This method updates the address. If the ADDRESSES table has the CONTENT_HASH column, the hash of the row is
+     * recomputed while the deduplication is on, and cleared otherwise (see setDeduplicating).
+     * While the deduplication is on, updating an address to the content of another saved address fails,
+     * as the unique index of the CONTENT_HASH column rejects the duplicate.
+     *
+     * @param address The address to be updated.
+     * @throws UnableToSaveException If a SQLException occurs.
+     */
+    @Override
+    public void update(Address address) throws UnableToSaveException {
+        forgetContentHash(address.getId());
+        super.update(address);
+    }
+
+    @Override
+    public void delete(Address address) throws UnableToDeleteException {
+        super.delete(address);
+        forgetContentHash(address.getId());
+    }
+
+    @Override
+    public void delete(Address... addresses) throws UnableToDeleteException {
+        super.delete(addresses);
+        for (Address address : addresses) {
+            forgetContentHash(address.getId());
+        }
+    }
+
+    @Override
+    public int deleteAllById(Collection<Long> ids) throws UnableToDeleteException {
+        int deleted = super.deleteAllById(ids);
+        ids.forEach(this::forgetContentHash);
+        return deleted;
+    }
+
+    /**
+     * This method deletes those of the given addresses which are no longer referenced by any person,
+     * e.g. after the people living there were deleted.
+     *
+     * @param ids The IDs of the addresses which may have become orphaned.
+     * @return The number of deleted addresses.
+     * @throws UnableToDeleteException If a SQLException occurs.
+     */
+    int deleteOrphans(Collection<Long> ids) throws UnableToDeleteException {
+        if (ids.isEmpty()) return 0;
+        try (ConnectionLease lease = connections.acquire()) {
+            PreparedStatement ps = lease.statements().prepare(DELETE_ORPHANED_ADDRESSES_SQL);
+            Array idArray = lease.connection().createArrayOf("BIGINT", ids.toArray());
+            try {
+                ps.setArray(1, idArray);
+                int deleted = ps.executeUpdate();
+                // the still referenced addresses are evicted as well, they are simply loaded again when needed
+                for (Long id : ids) {
+                    evict(id);
+                    forgetContentHash(id);
+                }
+                return deleted;
+            } finally {
+                idArray.free();
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            throw new UnableToDeleteException("Unable to delete orphaned addresses");
+        }
+    }
+
+    /**
+     * This method returns the SQL of the operation, using the statements which also write the CONTENT_HASH column
+     * for saving while the deduplication is on, and for updating whenever the table has the column.
+     *
+     * @param operationType The type of the CRUD operation whose SQL query should be retrieved.
+     * @return The SQL query associated with the CRUD operation.
+     */
+    @Override
+    protected String getSql(CrudOperation operationType) {
+        if (deduplicating && operationType == CrudOperation.SAVE) return SAVE_ADDRESS_WITH_HASH_SQL;
+        if (operationType == CrudOperation.UPDATE && hasContentHashColumn()) return UPDATE_ADDRESS_WITH_HASH_SQL;
+        return super.getSql(operationType);
+    }
+
+    private Long findIdByContentHash(String contentHash) throws UnableToLoadException {
+        synchronized (idsByContentHash) {
+            Long id = idsByContentHash.get(contentHash);
+            if (id != null) return id;
+        }
+        try (ConnectionLease lease = connections.acquire()) {
+            PreparedStatement ps = lease.statements().prepare(FIND_ID_BY_CONTENT_HASH_SQL);
+            ps.setString(1, contentHash);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getLong(ID) : null;
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            throw new UnableToLoadException("Unable to find address by content hash: " + contentHash);
+        }
+    }
+
+    private boolean hasContentHashColumn() throws UnableToSaveException {
+        Boolean hasColumn = contentHashColumn;
+        if (hasColumn != null) return hasColumn;
+        try (ConnectionLease lease = connections.acquire();
+             ResultSet rs = lease.connection().getMetaData().getColumns(null, null, "ADDRESSES", CONTENT_HASH)) {
+            hasColumn = rs.next();
+            contentHashColumn = hasColumn;
+            return hasColumn;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            throw new UnableToSaveException("Unable to check the columns of the ADDRESSES table");
+        }
+    }
+
+    private boolean isAutoCommit() throws UnableToSaveException {
+        try (ConnectionLease lease = connections.acquire()) {
+            return lease.connection().getAutoCommit();
+        } catch (SQLException e) {
+            e.printStackTrace();
+            throw new UnableToSaveException("Unable to check the commit mode of the connection");
+        }
+    }
+
+    private void rememberContentHash(String contentHash, Long id) {
+        synchronized (idsByContentHash) {
+            idsByContentHash.put(contentHash, id);
+            contentHashesById.put(id, contentHash);
+        }
+    }
+
+    private void forgetContentHash(Long id) {
+        synchronized (idsByContentHash) {
+            String contentHash = contentHashesById.remove(id);
+            if (contentHash != null) {
+                idsByContentHash.remove(contentHash);
+            }
+        }
+    }
+
+    /**
+     * This method computes the hash identifying the content of an address: a SHA-256 hash of all its fields except the ID.
+     *
+     * @param address The address to hash.
+     * @return The hash as 64 hexadecimal characters.
+     */
+    static String contentHash(Address address) {
+        StringBuilder content = new StringBuilder();
+        for (Object field : new Object[]{address.getStreetAddress(), address.getAddress2(), address.getCity(), address.getState(),
+                address.getPostcode(), address.getCountry(), address.getCounty(), address.getRegion()}) {
+            content.append(field == null ? String.valueOf(NULL_FIELD) : field.toString()).append(FIELD_SEPARATOR);
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(content.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
     @Override
     @SQL(operationType = CrudOperation.SAVE, value = SAVE_ADDRESS_SQL)
     void mapForSave(Address entity, PreparedStatement ps) throws SQLException {
+        mapFields(entity, ps);
+        if (deduplicating) {
+            ps.setString(9, contentHash(entity));
+        }
+    }
+
+    @Override
+    @SQL(operationType = CrudOperation.UPDATE, value = UPDATE_ADDRESS_SQL)
+    void mapForUpdate(Address entity, PreparedStatement ps) throws SQLException {
+        mapFields(entity, ps);
+        if (hasContentHashColumn()) {
+            ps.setString(9, deduplicating ? contentHash(entity) : null);
+            ps.setLong(10, getIdByAnnotation(entity));
+        } else {
+            ps.setLong(9, getIdByAnnotation(entity));
+        }
+    }
+
+    private static void mapFields(Address entity, PreparedStatement ps) throws SQLException {
         ps.setString(1, entity.getStreetAddress());
         ps.setString(2, entity.getAddress2());
         ps.setString(3, entity.getCity());
@@ -42,13 +406,14 @@ public class AddressRepository extends CRUDRepository<Address> {
         ps.setString(8, entity.getRegion().name());
     }
 
-    @Override
-    void mapForUpdate(Address entity, PreparedStatement ps) throws SQLException {
-
-    }
-
     @Override
     @SQL(operationType = CrudOperation.FIND_BY_ID, value = FIND_BY_ID_SQL)
+    @SQL(operationType = CrudOperation.FIND_ALL, value = FIND_ALL_SQL)
+    @SQL(operationType = CrudOperation.FIND_ALL_BY_ID, value = FIND_ADDRESSES_BY_IDS_SQL)
+    @SQL(operationType = CrudOperation.EXISTS_BY_ID, value = EXISTS_ADDRESS_BY_ID_SQL)
+    @SQL(operationType = CrudOperation.COUNT, value = COUNT_ALL_SQL)
+    @SQL(operationType = CrudOperation.DELETE, value = DELETE_ADDRESS_SQL)
+    @SQL(operationType = CrudOperation.DELETE_ALL_BY_ID, value = DELETE_ADDRESSES_BY_IDS_SQL)
     Address extractEntityFromResultSet(ResultSet rs) throws SQLException {
         long id = rs.getLong(ID);
         String streetAddress = rs.getString(STREET_ADDRESS);
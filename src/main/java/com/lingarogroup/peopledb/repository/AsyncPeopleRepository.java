@@ -0,0 +1,167 @@
+package com.lingarogroup.peopledb.repository;
+
+import com.lingarogroup.peopledb.model.Person;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+/**
+ * This class is an asynchronous facade over a PeopleRepository.
+ * Every operation runs as a separate task and returns a CompletableFuture, so independent lookups
+ * (e.g. resolving all people shown on one page) overlap instead of running one after another.
+ * By default, the tasks run on a virtual-thread-per-task executor (falling back to a cached thread pool on JVMs without virtual threads).
+ * The number of database operations running at the same time is capped with a semaphore.
+ * A permit is taken before a task is handed to the executor, and the operations without a permit wait in a queue
+ * until a running task picks them up, so a burst of operations never occupies more than maxConcurrentOperations threads.
+ * To actually run in parallel, the wrapped repository should be created with a DataSource, so it has a connection pool;
+ * a repository working on a single Connection executes the operations one after another.
+ */
+public class AsyncPeopleRepository implements AutoCloseable {
+    private final PeopleRepository repository;
+    private final ExecutorService executor;
+    private final boolean ownsExecutor;
+    private final Semaphore permits;
+    private final Queue<PendingOperation<?>> pending = new ConcurrentLinkedQueue<>();
+
+    public AsyncPeopleRepository(PeopleRepository repository, int maxConcurrentOperations) {
+        this(repository, maxConcurrentOperations, newThreadPerTaskExecutor(), true);
+    }
+
+    /**
+     * This constructor runs the operations on the given executor, which is not shut down when this facade is closed.
+     *
+     * @param repository The repository executing the operations.
+     * @param maxConcurrentOperations The maximum number of database operations running at the same time.
+     * @param executor The executor running the operations.
+     */
+    public AsyncPeopleRepository(PeopleRepository repository, int maxConcurrentOperations, ExecutorService executor) {
+        this(repository, maxConcurrentOperations, executor, false);
+    }
+
+    private AsyncPeopleRepository(PeopleRepository repository, int maxConcurrentOperations, ExecutorService executor, boolean ownsExecutor) {
+        if (maxConcurrentOperations < 1) {
+            throw new IllegalArgumentException("Max concurrent operations must be greater than 0, but was: " + maxConcurrentOperations);
+        }
+        this.repository = repository;
+        this.executor = executor;
+        this.ownsExecutor = ownsExecutor;
+        this.permits = new Semaphore(maxConcurrentOperations);
+    }
+
+    public CompletableFuture<Person> saveAsync(Person person) {
+        return submit(() -> repository.save(person));
+    }
+
+    public CompletableFuture<Optional<Person>> findByIdAsync(Long id) {
+        return submit(() -> repository.findById(id));
+    }
+
+    /**
+     * This method looks up all the given IDs, in chunks of the ID chunk size of the repository (see PeopleRepository.setIdChunkSize).
+     * Every chunk is one findAllById call, so one query, and the chunks are looked up concurrently.
+     * The people are returned in the order of the IDs, without duplicates, and IDs which are not found are skipped.
+     *
+     * @param ids The IDs of the people to find, nulls are ignored.
+     * @return A CompletableFuture of the found people.
+     */
+    public CompletableFuture<List<Person>> findAllByIdsAsync(Collection<Long> ids) {
+        List<Long> distinctIds = ids.stream().filter(Objects::nonNull).distinct().toList();
+        int chunkSize = repository.getIdChunkSize();
+        List<CompletableFuture<List<Person>>> lookups = new ArrayList<>();
+        for (int from = 0; from < distinctIds.size(); from += chunkSize) {
+            List<Long> chunk = distinctIds.subList(from, Math.min(from + chunkSize, distinctIds.size()));
+            lookups.add(submit(() -> repository.findAllById(chunk)));
+        }
+        return CompletableFuture.allOf(lookups.toArray(CompletableFuture<?>[]::new))
+                .thenApply(ignored -> lookups.stream()
+                        .flatMap(lookup -> lookup.join().stream())
+                        .toList());
+    }
+
+    public CompletableFuture<Long> countAsync() {
+        return submit(repository::count);
+    }
+
+    private <R> CompletableFuture<R> submit(Supplier<R> operation) {
+        PendingOperation<R> pendingOperation = new PendingOperation<>(operation, new CompletableFuture<>());
+        pending.add(pendingOperation);
+        dispatch();
+        return pendingOperation.result();
+    }
+
+    /**
+     * This method hands queued operations to the executor while there are free permits.
+     * Every task handed to the executor holds one permit and keeps running the queued operations until the queue is empty,
+     * so the number of occupied threads never exceeds the number of permits, however many operations are queued.
+     */
+    private void dispatch() {
+        while (!pending.isEmpty() && permits.tryAcquire()) {
+            PendingOperation<?> operation = pending.poll();
+            if (operation == null) {
+                // another thread took the operation, so the permit is given back and the queue is checked again
+                permits.release();
+                continue;
+            }
+            try {
+                executor.execute(() -> runPending(operation));
+            } catch (RejectedExecutionException e) {
+                permits.release();
+                operation.result().completeExceptionally(e);
+            }
+        }
+    }
+
+    private void runPending(PendingOperation<?> first) {
+        PendingOperation<?> operation = first;
+        while (true) {
+            while (operation != null) {
+                operation.run();
+                operation = pending.poll();
+            }
+            permits.release();
+            // an operation queued after the last poll found no free permit, so this thread has to run it
+            if (pending.isEmpty() || !permits.tryAcquire()) return;
+            operation = pending.poll();
+        }
+    }
+
+    private record PendingOperation<R>(Supplier<R> operation, CompletableFuture<R> result) {
+        void run() {
+            try {
+                result.complete(operation.get());
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * This method shuts down the executor created by this facade. The wrapped repository is not closed.
+     */
+    @Override
+    public void close() {
+        if (ownsExecutor) {
+            executor.shutdown();
+        }
+    }
+
+    private static ExecutorService newThreadPerTaskExecutor() {
+        // virtual threads are looked up reflectively, so the code still compiles and runs on Java 17
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+}
@@ -1,30 +1,108 @@
 package com.lingarogroup.peopledb.repository;
 
-import com.lingarogroup.peopledb.annotation.Id;
+import com.lingarogroup.peopledb.cache.CacheStats;
+import com.lingarogroup.peopledb.cache.EntityCache;
 import com.lingarogroup.peopledb.exception.*;
 import com.lingarogroup.peopledb.model.CrudOperation;
 import com.lingarogroup.peopledb.annotation.SQL;
-import com.lingarogroup.peopledb.annotation.SQLContainer;
 
+import javax.sql.DataSource;
+import java.lang.reflect.ParameterizedType;
+import java.math.BigDecimal;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Supplier;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
-public abstract class CRUDRepository<T> {
-    protected Connection connection;
-    private PreparedStatement savePS;
-    private PreparedStatement findByIdPS;
-    private PreparedStatement findAllPS;
+public abstract class CRUDRepository<T> implements AutoCloseable {
+    public static final int DEFAULT_BATCH_SIZE = 500;
+    public static final int DEFAULT_ID_CHUNK_SIZE = 1000;
+    public static final int DEFAULT_FETCH_SIZE = 1000;
 
+    final ConnectionProvider connections;
+    // operations a repository may leave without SQL, falling back to the required operations
+    private static final Set<CrudOperation> OPTIONAL_OPERATIONS = EnumSet.of(CrudOperation.DELETE_ALL_BY_ID, CrudOperation.FIND_ALL_BY_ID,
+            CrudOperation.EXISTS_BY_ID);
+    // SQL resolved once per repository class, shared by all instances of that class
+    private static final Map<Class<?>, Map<CrudOperation, String>> SQL_BY_REPOSITORY_CLASS = new ConcurrentHashMap<>();
+
+    private final Map<CrudOperation, String> sqlByOperation;
+    private final Class<T> entityClass;
+    private volatile int batchSize = DEFAULT_BATCH_SIZE;
+    private volatile int idChunkSize = DEFAULT_ID_CHUNK_SIZE;
+    private volatile int fetchSize = DEFAULT_FETCH_SIZE;
+    private volatile EntityCache<T> cache;
+    // the update SQL of every set of changed columns seen so far, keyed by the bit mask of the columns (see updateAll)
+    private final Map<Long, String> updateSqlByColumns = new ConcurrentHashMap<>();
+
+    /**
+     * This constructor creates a repository working on a single Connection owned by the caller.
+     * The repository can be shared between threads, but their operations are executed one after another.
+     *
+     * @param connection The Connection used by the repository.
+     * @throws UnableToInitializeRepositoryException If the SQL of an operation is missing or the statements cannot be prepared.
+     */
     public CRUDRepository(Connection connection) throws UnableToInitializeRepositoryException {
-        try {
-            this.connection = connection;
-            savePS = connection.prepareStatement(getSqlByAnnotation(CrudOperation.SAVE, this::getSaveSql), Statement.RETURN_GENERATED_KEYS);
-            findByIdPS = connection.prepareStatement(getSqlByAnnotation(CrudOperation.FIND_BY_ID, this::getFindByIdSql));
+        this(new SingleConnectionProvider(connection));
+    }
+
+    /**
+     * This constructor creates a thread-safe repository backed by a pool of Connections obtained from the DataSource,
+     * with the default maximum pool size.
+     *
+     * @param dataSource The DataSource the pooled Connections are obtained from.
+     * @throws UnableToInitializeRepositoryException If the SQL of an operation is missing or the statements cannot be prepared.
+     */
+    public CRUDRepository(DataSource dataSource) throws UnableToInitializeRepositoryException {
+        this(dataSource, ConnectionPool.DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * This constructor creates a thread-safe repository backed by a pool of Connections obtained from the DataSource.
+     * Every operation borrows a Connection for its duration (or for the whole transaction, see inTransaction),
+     * so up to maxPoolSize threads can work with the database at the same time.
+     *
+     * @param dataSource The DataSource the pooled Connections are obtained from.
+     * @param maxPoolSize The maximum number of Connections opened by the pool.
+     * @throws UnableToInitializeRepositoryException If the SQL of an operation is missing or the statements cannot be prepared.
+     */
+    public CRUDRepository(DataSource dataSource, int maxPoolSize) throws UnableToInitializeRepositoryException {
+        this(new ConnectionPool(dataSource, maxPoolSize, ConnectionPool.DEFAULT_TIMEOUT_MILLIS));
+    }
+
+    /**
+     * This constructor allows several repositories to share one ConnectionProvider,
+     * so they use the same Connection, transaction and prepared statements within a thread.
+     *
+     * @param connections The provider of the Connections used by the repository.
+     * @throws UnableToInitializeRepositoryException If the SQL of an operation is missing or the statements cannot be prepared.
+     */
+    CRUDRepository(ConnectionProvider connections) throws UnableToInitializeRepositoryException {
+        sqlByOperation = getSqlByOperation();
+        entityClass = resolveEntityClass();
+        this.connections = connections;
+        try (ConnectionLease lease = connections.acquire()) {
+            // preparing the most used statements upfront, so invalid SQL is reported when the repository is created;
+            // the resolved SQL is used instead of getSql, which subclasses override using fields not set before this constructor returns
+            lease.statements().prepareWithGeneratedKeys(sqlByOperation.get(CrudOperation.SAVE));
+            lease.statements().prepare(sqlByOperation.get(CrudOperation.FIND_BY_ID));
         } catch (SQLException e) {
             e.printStackTrace();
             throw new UnableToInitializeRepositoryException("Unable to prepare statements: " + e.getMessage(), e);
@@ -44,20 +122,23 @@ public abstract class CRUDRepository<T> {
      */
     public T save(T entity) throws UnableToSaveException {
         Long id = null;
-        try {
+        try (ConnectionLease lease = connections.acquire()) {
             // Prepare the statement to prevent SQL injection, and enable the return of auto-generated keys
+            PreparedStatement savePS = lease.statements().prepareWithGeneratedKeys(getSql(CrudOperation.SAVE));
             savePS.clearParameters();
             mapForSave(entity, savePS);
             savePS.executeUpdate();
             // getGeneratedKeys returns the ResultSet containing the auto-generated keys
-            ResultSet rs = savePS.getGeneratedKeys();
-            // To retrieve the auto-generated key, we need to iterate over the ResultSet
-            while (rs.next()) {
-                // getLong(1) returns the value of the first column
-                // There is also a version with column name
-                id = rs.getLong(1);
-                setIdByAnnotation(entity, id);
+            try (ResultSet rs = savePS.getGeneratedKeys()) {
+                // To retrieve the auto-generated key, we need to iterate over the ResultSet
+                while (rs.next()) {
+                    // getLong(1) returns the value of the first column
+                    // There is also a version with column name
+                    id = rs.getLong(1);
+                    setIdByAnnotation(entity, id);
+                }
             }
+            registerInSession(entity);
         } catch (SQLException e) {
             e.printStackTrace();
             throw new UnableToSaveException("Unable to save person: " + entity);
@@ -66,10 +147,133 @@ public abstract class CRUDRepository<T> {
         return entity;
     }
 
+    /**
+     * This method is responsible for saving many entities to the database using JDBC batching.
+     * The entities are grouped into chunks of the configured batch size (see setBatchSize).
+     * Each chunk is sent to the database with a single executeBatch call instead of one executeUpdate per entity.
+     * Before each chunk is saved, the preSaveAll hook is invoked for it, e.g. to save the entities it refers to in batches as well.
+     * The auto-generated keys of a chunk are read back in insertion order and assigned as the IDs of the entities.
+     * After each chunk is saved, the postSaveAll hook is invoked for it.
+     * If a SQLException is encountered, an UnableToSaveException is thrown.
+     *
+     * @param entities The entities that are to be saved.
+     * @return The saved entities, complete with the auto-generated IDs, in iteration order.
+     * @throws UnableToSaveException If a SQLException is encountered or not every entity got a generated key.
+     */
+    public List<T> saveAll(Iterable<T> entities) throws UnableToSaveException {
+        List<T> savedEntities = new ArrayList<>();
+        List<T> chunk = new ArrayList<>(batchSize);
+        for (T entity : entities) {
+            chunk.add(entity);
+            if (chunk.size() == batchSize) {
+                saveBatch(chunk);
+                savedEntities.addAll(chunk);
+                chunk = new ArrayList<>(batchSize);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            saveBatch(chunk);
+            savedEntities.addAll(chunk);
+        }
+        return savedEntities;
+    }
+
+    /**
+     * This method sets how many entities are sent to the database in a single batch by saveAll.
+     *
+     * @param batchSize The number of entities per batch, must be greater than 0.
+     * @throws IllegalArgumentException If the batch size is lower than 1.
+     */
+    public void setBatchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be greater than 0, but was: " + batchSize);
+        }
+        this.batchSize = batchSize;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * This method sets how many IDs are sent to the database as a single array parameter by findAllById and deleteAllById.
+     * It is independent of the batch size, as a chunk of IDs is one statement, while a batch holds one statement per entity.
+     *
+     * @param idChunkSize The number of IDs per statement, must be greater than 0.
+     * @throws IllegalArgumentException If the chunk size is lower than 1.
+     */
+    public void setIdChunkSize(int idChunkSize) {
+        if (idChunkSize < 1) {
+            throw new IllegalArgumentException("ID chunk size must be greater than 0, but was: " + idChunkSize);
+        }
+        this.idChunkSize = idChunkSize;
+    }
+
+    public int getIdChunkSize() {
+        return idChunkSize;
+    }
+
+    private void saveBatch(List<T> chunk) throws UnableToSaveException {
+        preSaveAll(chunk);
+        try (ConnectionLease lease = connections.acquire()) {
+            PreparedStatement savePS = lease.statements().prepareWithGeneratedKeys(getSql(CrudOperation.SAVE));
+            try {
+                for (T entity : chunk) {
+                    savePS.clearParameters();
+                    mapForSave(entity, savePS);
+                    savePS.addBatch();
+                }
+                savePS.executeBatch();
+            } catch (SQLException | RuntimeException e) {
+                // the statement is cached, so a half-filled batch must not be left behind for the next call
+                clearBatchQuietly(savePS);
+                throw e;
+            }
+            // the generated keys are returned in the same order in which the rows were added to the batch
+            int index = 0;
+            try (ResultSet rs = savePS.getGeneratedKeys()) {
+                while (rs.next() && index < chunk.size()) {
+                    T entity = chunk.get(index++);
+                    setIdByAnnotation(entity, rs.getLong(1));
+                    registerInSession(entity);
+                }
+            }
+            if (index != chunk.size()) {
+                throw new UnableToSaveException("Expected " + chunk.size() + " generated keys, but got: " + index);
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            throw new UnableToSaveException("Unable to save batch of " + chunk.size() + " entities");
+        }
+        postSaveAll(chunk);
+    }
+
+    private static void closeQuietly(AutoCloseable... resources) {
+        for (AutoCloseable resource : resources) {
+            if (resource == null) continue;
+            try {
+                resource.close();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private static void clearBatchQuietly(PreparedStatement ps) {
+        try {
+            ps.clearBatch();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
     /**
      * This method is used to find an entity by its ID.
-     * It prepares a SQL statement and sets the ID as the parameter.
+     * If a Session is open on the current thread and the entity is already in it, the entity is returned without any SQL.
+     * Then the shared EntityCache is consulted, if one is set (see setCache).
+     * Otherwise, it prepares a SQL statement and sets the ID as the parameter.
      * The SQL statement is executed and the entity is extracted from the ResultSet.
+     * An entity loaded outside a transaction is put into the EntityCache, so only committed data is shared between threads.
      * If a SQLException occurs, an UnableToLoadException is thrown.
      *
      * @param id The ID of the entity to be found.
@@ -77,20 +281,137 @@ public abstract class CRUDRepository<T> {
      * @throws UnableToLoadException If a SQLException occurs.
      */
     public Optional<T> findById(Long id) throws UnableToLoadException {
-        T entity = null;
-        try {
+        Session session = Session.current();
+        T entity = session == null ? null : session.find(entityClass, id);
+        if (entity != null) {
+            return Optional.of(entity);
+        }
+        EntityCache<T> cache = this.cache;
+        entity = cache == null ? null : cache.get(id);
+        if (entity != null) {
+            return Optional.of(registerInSession(entity));
+        }
+        boolean caching;
+        try (ConnectionLease lease = connections.acquire()) {
+            PreparedStatement findByIdPS = lease.statements().prepare(getSql(CrudOperation.FIND_BY_ID));
             findByIdPS.setLong(1, id);
-            ResultSet rs = findByIdPS.executeQuery();
-            while (rs.next()) {
-                entity = extractEntityFromResultSet(rs);
+            try (ResultSet rs = findByIdPS.executeQuery()) {
+                EntityRowIterator<T> entities = new EntityRowIterator<>(this, rs);
+                if (entities.hasNext()) {
+                    entity = entities.next();
+                }
             }
+            caching = entity != null && cache != null && lease.connection().getAutoCommit();
         } catch (SQLException e) {
             e.printStackTrace();
             throw new UnableToLoadException("Unable to find entity with id: " + id);
         }
+        // the entity is cached after the connection is given back, so other threads don't wait for the encoding
+        if (caching) {
+            cache.put(id, entity);
+        }
         return Optional.ofNullable(entity);
     }
 
+    /**
+     * This method is used to check whether an entity with the given ID exists, without loading it.
+     * If the entity is in the Session open on the current thread, no SQL is executed.
+     * Otherwise, the EXISTS_BY_ID SQL (e.g. SELECT 1 ... WHERE ID = ?) is executed,
+     * or findById if the repository has no such SQL.
+     *
+     * @param id The ID of the entity.
+     * @return true if the entity exists.
+     * @throws UnableToLoadException If a SQLException occurs.
+     */
+    public boolean existsById(Long id) throws UnableToLoadException {
+        Session session = Session.current();
+        if (session != null && session.find(entityClass, id) != null) {
+            return true;
+        }
+        String existsSql = getSql(CrudOperation.EXISTS_BY_ID);
+        if (existsSql == null) {
+            return findById(id).isPresent();
+        }
+        try (ConnectionLease lease = connections.acquire()) {
+            PreparedStatement ps = lease.statements().prepare(existsSql);
+            ps.setLong(1, id);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next();
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            throw new UnableToLoadException("Unable to check if entity exists with id: " + id);
+        }
+    }
+
+    /**
+     * This method is used to find the entities with the given IDs.
+     * Like in findById, the entities in the open Session or the EntityCache are taken from there.
+     * The other IDs are sent in chunks of the configured ID chunk size (see setIdChunkSize), every chunk as a single array parameter
+     * of the FIND_ALL_BY_ID SQL (e.g. ... WHERE ID = ANY(?)), so a chunk is one query instead of one per ID.
+     * The rows are mapped like the rows of findById, and the entities loaded outside a transaction are put into the EntityCache.
+     * If the repository has no FIND_ALL_BY_ID SQL, the entities are found one by one with findById.
+     *
+     * @param ids The IDs of the entities to be found, duplicates and nulls are ignored.
+     * @return The found entities in the order of the IDs, without the IDs which were not found.
+     * @throws UnableToLoadException If a SQLException occurs.
+     */
+    public List<T> findAllById(Collection<Long> ids) throws UnableToLoadException {
+        List<Long> distinctIds = ids.stream().filter(Objects::nonNull).distinct().toList();
+        Session session = Session.current();
+        EntityCache<T> cache = this.cache;
+        Map<Long, T> entitiesById = new HashMap<>();
+        List<Long> missingIds = new ArrayList<>();
+        for (Long id : distinctIds) {
+            T entity = session == null ? null : session.find(entityClass, id);
+            if (entity == null && cache != null) {
+                entity = cache.get(id);
+                if (entity != null) entity = registerInSession(entity);
+            }
+            if (entity == null) missingIds.add(id);
+            else entitiesById.put(id, entity);
+        }
+        String findAllByIdSql = getSql(CrudOperation.FIND_ALL_BY_ID);
+        if (findAllByIdSql == null) {
+            missingIds.forEach(id -> findById(id).ifPresent(entity -> entitiesById.put(id, entity)));
+        } else if (!missingIds.isEmpty()) {
+            List<T> loadedEntities = new ArrayList<>();
+            boolean caching;
+            try (ConnectionLease lease = connections.acquire()) {
+                PreparedStatement ps = lease.statements().prepare(findAllByIdSql);
+                caching = cache != null && lease.connection().getAutoCommit();
+                int chunkSize = idChunkSize;
+                for (int from = 0; from < missingIds.size(); from += chunkSize) {
+                    List<Long> chunk = missingIds.subList(from, Math.min(from + chunkSize, missingIds.size()));
+                    Array idArray = lease.connection().createArrayOf("BIGINT", chunk.toArray());
+                    try {
+                        ps.setArray(1, idArray);
+                        try (ResultSet rs = ps.executeQuery()) {
+                            new EntityRowIterator<>(this, rs).forEachRemaining(entity -> {
+                                entitiesById.put(getIdByAnnotation(entity), entity);
+                                loadedEntities.add(entity);
+                            });
+                        }
+                    } finally {
+                        idArray.free();
+                    }
+                }
+            } catch (SQLException e) {
+                e.printStackTrace();
+                throw new UnableToLoadException("Unable to find " + missingIds.size() + " entities by id");
+            }
+            if (caching) {
+                loadedEntities.forEach(entity -> cache.put(getIdByAnnotation(entity), entity));
+            }
+        }
+        List<T> entities = new ArrayList<>(entitiesById.size());
+        for (Long id : distinctIds) {
+            T entity = entitiesById.get(id);
+            if (entity != null) entities.add(entity);
+        }
+        return entities;
+    }
+
     /**
      * This method is used to find all entities.
      * It prepares a SQL statement and executes it.
@@ -102,14 +423,10 @@ public abstract class CRUDRepository<T> {
      */
     public List<T> findAll() throws UnableToLoadException {
         List<T> entities = new ArrayList<>();
-        try {
-            findAllPS = connection.prepareStatement(getSqlByAnnotation(CrudOperation.FIND_ALL, this::getFindAllSql),
-                    ResultSet.TYPE_SCROLL_INSENSITIVE,
-                    ResultSet.CONCUR_READ_ONLY);
-            ResultSet rs = findAllPS.executeQuery();
-            while (rs.next()) {
-                T entity = extractEntityFromResultSet(rs);
-                entities.add(entity);
+        try (ConnectionLease lease = connections.acquire()) {
+            PreparedStatement findAllPS = lease.statements().prepare(getSql(CrudOperation.FIND_ALL));
+            try (ResultSet rs = findAllPS.executeQuery()) {
+                new EntityRowIterator<>(this, rs).forEachRemaining(entities::add);
             }
         } catch (SQLException e) {
             e.printStackTrace();
@@ -118,41 +435,233 @@ public abstract class CRUDRepository<T> {
         return entities;
     }
 
+    /**
+     * This method is used to stream all entities without loading them into memory at once.
+     * It uses the configured fetch size (see setFetchSize).
+     *
+     * @return A lazily populated Stream of all entities, which must be closed after use.
+     * @throws UnableToLoadException If a SQLException occurs.
+     * @see #streamAll(int)
+     */
+    public Stream<T> streamAll() throws UnableToLoadException {
+        return streamAll(fetchSize);
+    }
+
+    /**
+     * This method is used to stream all entities without loading them into memory at once.
+     * It executes the find all SQL statement on its own forward-only, read-only cursor with the given fetch size.
+     * The statement is not taken from the StatementCache, because re-executing a cached statement would close the open cursor.
+     * The entities are extracted from the ResultSet only when the Stream is consumed,
+     * and rows that belong to the same entity are collapsed while moving forward (see mergeRow).
+     * The Stream holds a Connection, the statement and the ResultSet open, so it should be used in a try-with-resources block.
+     * Closing the Stream closes the statement and the ResultSet, and gives the Connection back.
+     *
+     * @param fetchSize The number of rows the driver should fetch from the database at once.
+     * @return A lazily populated Stream of all entities, which must be closed after use.
+     * @throws UnableToLoadException If a SQLException occurs.
+     */
+    public Stream<T> streamAll(int fetchSize) throws UnableToLoadException {
+        ConnectionLease lease = null;
+        PreparedStatement ps = null;
+        try {
+            lease = connections.acquire();
+            ps = lease.connection().prepareStatement(getSql(CrudOperation.FIND_ALL),
+                    ResultSet.TYPE_FORWARD_ONLY,
+                    ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            ResultSet rs = ps.executeQuery();
+            PreparedStatement streamPS = ps;
+            ConnectionLease streamLease = lease;
+            return StreamSupport.stream(
+                            Spliterators.spliteratorUnknownSize(new EntityRowIterator<>(this, rs), Spliterator.ORDERED | Spliterator.NONNULL),
+                            false)
+                    .onClose(() -> closeQuietly(rs, streamPS, streamLease));
+        } catch (SQLException e) {
+            e.printStackTrace();
+            closeQuietly(ps, lease);
+            throw new UnableToLoadException("Unable to stream entities");
+        }
+    }
+
+    /**
+     * This method sets the default number of rows the driver should fetch at once when streaming entities.
+     *
+     * @param fetchSize The number of rows per fetch, must be greater than 0.
+     * @throws IllegalArgumentException If the fetch size is lower than 1.
+     */
+    public void setFetchSize(int fetchSize) {
+        if (fetchSize < 1) {
+            throw new IllegalArgumentException("Fetch size must be greater than 0, but was: " + fetchSize);
+        }
+        this.fetchSize = fetchSize;
+    }
+
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
     /**
      * This method is used to update an entity in the database.
-     * It prepares a SQL statement and maps the entity's fields to the PreparedStatement's parameters by calling the mapForUpdate method.
-     * The SQL statement is executed and the number of affected rows is printed.
+     * If the repository tracks changes (see getUpdatableColumns), it is updated by updateAll,
+     * so an entity of the open Session is only written if it changed, and only in its changed columns.
+     * Otherwise, it prepares a SQL statement and maps the entity's fields to the PreparedStatement's parameters by calling the mapForUpdate method.
      * If a SQLException occurs, an UnableToSaveException is thrown.
      *
      * @param entity The entity to be updated.
      * @throws UnableToSaveException If a SQLException occurs.
      */
      public void update(T entity) throws UnableToSaveException {
-        try {
-            PreparedStatement ps = connection.prepareStatement(getSqlByAnnotation(CrudOperation.UPDATE, this::getUpdateSql));
+        if (!getUpdatableColumns().isEmpty()) {
+            updateAll(List.of(entity));
+            return;
+        }
+        try (ConnectionLease lease = connections.acquire()) {
+            PreparedStatement ps = lease.statements().prepare(getSql(CrudOperation.UPDATE));
             mapForUpdate(entity, ps);
-            int rowsAffected = ps.executeUpdate();
-            System.out.printf("Rows affected: %d%n", rowsAffected);
+            ps.executeUpdate();
+            evictFromCache(getIdByAnnotation(entity));
         } catch (SQLException e) {
             throw new UnableToSaveException("Unable to update entity");
         }
     }
 
+    /**
+     * This method is used to update many entities, writing only the columns which changed.
+     * When an entity enters the Session open on the current thread (by being loaded or saved), a snapshot of its updatable columns is taken.
+     * The entities of the open Session are compared with their snapshots: entities without changes are skipped,
+     * and the others are updated only in their changed columns. Entities not in the open Session (or with no Session open) are updated in all columns.
+     * The entities with the same set of changed columns share one UPDATE statement and are sent in JDBC batches of the configured batch size.
+     * The updates are not run in a transaction of their own, so the whole update should be wrapped in inTransaction if it has to be atomic.
+     * If the repository does not track changes, every entity is updated with update.
+     *
+     * @param entities The entities to be updated.
+     * @return The number of updated entities, not counting the skipped ones.
+     * @throws UnableToSaveException If a SQLException occurs.
+     */
+    public int updateAll(Iterable<T> entities) throws UnableToSaveException {
+        List<String> columns = getUpdatableColumns();
+        if (columns.isEmpty()) {
+            int updated = 0;
+            for (T entity : entities) {
+                update(entity);
+                updated++;
+            }
+            return updated;
+        }
+        Session session = Session.current();
+        long allColumns = (1L << columns.size()) - 1;
+        Map<Long, List<Change<T>>> changesByColumns = new LinkedHashMap<>();
+        for (T entity : entities) {
+            Long id = getIdByAnnotation(entity);
+            Object[] values = getUpdatableValues(entity);
+            boolean tracked = session != null && session.find(entityClass, id) == entity;
+            long changedColumns = tracked ? changedColumns(session.getSnapshot(entityClass, id), values) : allColumns;
+            if (changedColumns != 0) {
+                changesByColumns.computeIfAbsent(changedColumns, c -> new ArrayList<>()).add(new Change<>(entity, id, values, tracked));
+            }
+        }
+        int updated = 0;
+        try (ConnectionLease lease = connections.acquire()) {
+            for (Map.Entry<Long, List<Change<T>>> changes : changesByColumns.entrySet()) {
+                updateBatches(lease, changes.getKey(), allColumns, changes.getValue());
+                for (Change<T> change : changes.getValue()) {
+                    evictFromCache(change.id());
+                    if (change.tracked()) {
+                        session.putSnapshot(entityClass, change.id(), change.values());
+                    }
+                }
+                updated += changes.getValue().size();
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            throw new UnableToSaveException("Unable to update entities");
+        }
+        return updated;
+    }
+
+    private void updateBatches(ConnectionLease lease, long changedColumns, long allColumns, List<Change<T>> changes) throws SQLException {
+        boolean allChanged = changedColumns == allColumns;
+        PreparedStatement ps = lease.statements().prepare(allChanged
+                ? getSql(CrudOperation.UPDATE)
+                : updateSqlByColumns.computeIfAbsent(changedColumns, this::buildUpdateSql));
+        try {
+            int batched = 0;
+            for (Change<T> change : changes) {
+                if (allChanged) {
+                    mapForUpdate(change.entity(), ps);
+                } else {
+                    int index = 1;
+                    for (int column = 0; column < change.values().length; column++) {
+                        if ((changedColumns & (1L << column)) == 0) continue;
+                        Object value = change.values()[column];
+                        if (value == null) ps.setNull(index++, Types.NULL);
+                        else ps.setObject(index++, value);
+                    }
+                    ps.setLong(index, change.id());
+                }
+                ps.addBatch();
+                if (++batched == batchSize) {
+                    ps.executeBatch();
+                    batched = 0;
+                }
+            }
+            if (batched > 0) {
+                ps.executeBatch();
+            }
+        } catch (SQLException | RuntimeException e) {
+            clearBatchQuietly(ps);
+            throw e;
+        }
+    }
+
+    private String buildUpdateSql(long changedColumns) {
+        List<String> columns = getUpdatableColumns();
+        List<String> changed = new ArrayList<>();
+        for (int column = 0; column < columns.size(); column++) {
+            if ((changedColumns & (1L << column)) != 0) changed.add(columns.get(column));
+        }
+        return buildUpdateSql(changed);
+    }
+
+    private static long changedColumns(Object[] snapshot, Object[] values) {
+        long changedColumns = 0;
+        for (int column = 0; column < values.length; column++) {
+            if (snapshot == null || !sameValue(snapshot[column], values[column])) {
+                changedColumns |= 1L << column;
+            }
+        }
+        return changedColumns;
+    }
+
+    private static boolean sameValue(Object snapshot, Object value) {
+        if (snapshot instanceof BigDecimal snapshotDecimal && value instanceof BigDecimal decimal) {
+            // 73000.5 and 73000.50 are the same salary
+            return snapshotDecimal.compareTo(decimal) == 0;
+        }
+        return Objects.equals(snapshot, value);
+    }
+
+    /**
+     * @param tracked Whether the entity is the instance registered in the open Session, whose snapshot is refreshed after the update.
+     */
+    private record Change<E>(E entity, Long id, Object[] values, boolean tracked) {}
+
     /**
      * This method is used to delete an entity from the database.
      * It prepares a SQL statement and sets the ID of the entity as the parameter.
-     * The SQL statement is executed and the number of affected records is printed.
+     * The SQL statement is executed, and the entity is evicted from the open Session and the EntityCache.
      * If a SQLException occurs, an UnableToDeleteException is thrown.
      *
      * @param entity The entity to be deleted.
      * @throws UnableToDeleteException If a SQLException occurs.
      */
     public void delete(T entity) throws UnableToDeleteException {
-        try {
-            PreparedStatement ps = connection.prepareStatement(getSqlByAnnotation(CrudOperation.DELETE, this::getDeleteSql));
+        try (ConnectionLease lease = connections.acquire()) {
+            PreparedStatement ps = lease.statements().prepare(getSql(CrudOperation.DELETE));
             ps.setLong(1, getIdByAnnotation(entity));
-            int affectedRecords = ps.executeUpdate();
-            System.out.println("Affected records with delete: " + affectedRecords);
+            ps.executeUpdate();
+            evictFromSession(entity);
+            evictFromCache(getIdByAnnotation(entity));
         } catch (SQLException e) {
             throw new UnableToDeleteException("Unable to delete entity");
         }
@@ -168,19 +677,82 @@ public abstract class CRUDRepository<T> {
      * @throws RuntimeException If a database access error occurs or this method is called on a closed PreparedStatement.
      */
     public void delete(T... entities) throws UnableToDeleteException {
-        try {
-            PreparedStatement ps = connection.prepareStatement(getSqlByAnnotation(CrudOperation.DELETE, this::getDeleteSql));
-            for (T entity : entities) {
-                ps.setLong(1, getIdByAnnotation(entity));
-                ps.addBatch();
+        try (ConnectionLease lease = connections.acquire()) {
+            PreparedStatement ps = lease.statements().prepare(getSql(CrudOperation.DELETE));
+            try {
+                for (T entity : entities) {
+                    ps.setLong(1, getIdByAnnotation(entity));
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                for (T entity : entities) {
+                    evictFromSession(entity);
+                    evictFromCache(getIdByAnnotation(entity));
+                }
+            } catch (SQLException | RuntimeException e) {
+                clearBatchQuietly(ps);
+                throw e;
             }
-            int[] affectedRecords = ps.executeBatch();
-            System.out.println("Affected records with delete: " + affectedRecords.length);
         } catch (SQLException e) {
             throw new UnableToDeleteException("Unable to delete entities");
         }
     }
 
+    /**
+     * This method is used to delete the entities with the given IDs.
+     * The IDs are sent in chunks of the configured ID chunk size (see setIdChunkSize), every chunk as a single array parameter
+     * of the DELETE_ALL_BY_ID SQL (e.g. DELETE ... WHERE ID = ANY(?)), so a chunk is one statement instead of one per entity.
+     * If the repository has no DELETE_ALL_BY_ID SQL, every chunk is deleted as a batch of the delete SQL.
+     * The deleted entities are evicted from the open Session and the EntityCache.
+     * Nothing else is deleted, e.g. rows referencing the deleted ones are kept.
+     *
+     * @param ids The IDs of the entities to be deleted, duplicates are ignored.
+     * @return The number of deleted rows.
+     * @throws UnableToDeleteException If a SQLException occurs.
+     */
+    public int deleteAllById(Collection<Long> ids) throws UnableToDeleteException {
+        List<Long> distinctIds = new ArrayList<>(new LinkedHashSet<>(ids));
+        String deleteAllSql = getSql(CrudOperation.DELETE_ALL_BY_ID);
+        int deleted = 0;
+        try (ConnectionLease lease = connections.acquire()) {
+            int chunkSize = idChunkSize;
+            for (int from = 0; from < distinctIds.size(); from += chunkSize) {
+                List<Long> chunk = distinctIds.subList(from, Math.min(from + chunkSize, distinctIds.size()));
+                deleted += deleteAllSql == null ? deleteBatch(lease, chunk) : deleteChunk(lease, deleteAllSql, chunk);
+                chunk.forEach(this::evict);
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            throw new UnableToDeleteException("Unable to delete " + distinctIds.size() + " entities by id");
+        }
+        return deleted;
+    }
+
+    private static int deleteChunk(ConnectionLease lease, String sql, List<Long> ids) throws SQLException {
+        PreparedStatement ps = lease.statements().prepare(sql);
+        Array idArray = lease.connection().createArrayOf("BIGINT", ids.toArray());
+        try {
+            ps.setArray(1, idArray);
+            return ps.executeUpdate();
+        } finally {
+            idArray.free();
+        }
+    }
+
+    private int deleteBatch(ConnectionLease lease, List<Long> ids) throws SQLException {
+        PreparedStatement ps = lease.statements().prepare(getSql(CrudOperation.DELETE));
+        try {
+            for (Long id : ids) {
+                ps.setLong(1, id);
+                ps.addBatch();
+            }
+            return Arrays.stream(ps.executeBatch()).map(count -> Math.max(count, 0)).sum();
+        } catch (SQLException | RuntimeException e) {
+            clearBatchQuietly(ps);
+            throw e;
+        }
+    }
+
     /**
      * This method is used to count the total number of entities in the database.
      * It executes the SQL statement obtained by calling the getCountSql() method.
@@ -192,11 +764,12 @@ public abstract class CRUDRepository<T> {
      */
     public long count() throws UnableToLoadException {
         long count = 0;
-        try {
-            PreparedStatement ps = connection.prepareStatement(getSqlByAnnotation(CrudOperation.COUNT, this::getCountSql));
-            ResultSet rs = ps.executeQuery();
-            while (rs.next()) {
-                count = rs.getLong("COUNT");
+        try (ConnectionLease lease = connections.acquire()) {
+            PreparedStatement ps = lease.statements().prepare(getSql(CrudOperation.COUNT));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    count = rs.getLong("COUNT");
+                }
             }
         } catch (SQLException e) {
             e.printStackTrace();
@@ -206,42 +779,228 @@ public abstract class CRUDRepository<T> {
     }
 
     /**
-     * Retrieves the SQL query associated with a specific CRUD operation in the class.
-     * It does this by looking for a method with the given CRUD operation type and retrieving the value of its SQL annotation.
-     * If no such method is found, or if the method does not have a SQL annotation, it uses the provided Supplier to get a default SQL query.
+     * This method runs the given work in a single transaction on a single Connection.
+     * All operations of this repository (and of the repositories sharing its Connections) called by the work on the current thread
+     * use the same Connection. The transaction is committed when the work completes, and rolled back if the work or the commit throws
+     * (including Errors), before the Connection is switched back to autocommit.
+     * If the Connection is already in manual-commit mode (e.g. a transaction managed by the caller, or an enclosing inTransaction call),
+     * the work joins that transaction and the caller stays responsible for committing it.
      *
-     * @param operationType The type of the CRUD operation whose SQL annotation value should be retrieved.
-     * @param sqlGetter A Supplier that provides a default SQL query if the method does not exist or does not have a SQL annotation.
-     * @return The SQL query associated with the method, or the default SQL query if the method does not exist or does not have a SQL annotation.
+     * @param work The work to run in the transaction.
+     * @param <R> The type of the result of the work.
+     * @return The result of the work.
+     * @throws UnableToSaveException If the transaction cannot be started, committed or rolled back.
+     */
+    public <R> R inTransaction(Supplier<R> work) throws UnableToSaveException {
+        try (ConnectionLease lease = connections.acquire()) {
+            Connection connection = lease.connection();
+            if (!connection.getAutoCommit()) {
+                return work.get();
+            }
+            connection.setAutoCommit(false);
+            try {
+                R result = work.get();
+                connection.commit();
+                return result;
+            } catch (Throwable e) {
+                // also on an Error or a failed commit, as turning the autocommit back on would commit the unfinished transaction
+                try {
+                    connection.rollback();
+                } catch (SQLException rollbackFailure) {
+                    e.addSuppressed(rollbackFailure);
+                }
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            throw new UnableToSaveException("Unable to complete transaction");
+        }
+    }
+
+    /**
+     * This method registers the entity in the Session open on the current thread, if there is one.
+     * If the entity is new to the Session and the repository tracks changes, a snapshot of its updatable columns is taken (see updateAll).
+     *
+     * @param entity The loaded or saved entity.
+     * @return The instance of the entity registered in the Session, which may be an instance registered before,
+     * or the given entity if no Session is open.
+     */
+    T registerInSession(T entity) {
+        Session session = Session.current();
+        if (session == null) return entity;
+        Long id = getIdByAnnotation(entity);
+        T registered = session.register(entityClass, id, entity);
+        if (registered == entity && id != null && session.getSnapshot(entityClass, id) == null && !getUpdatableColumns().isEmpty()) {
+            session.putSnapshot(entityClass, id, getUpdatableValues(entity));
+        }
+        return registered;
+    }
+
+    private void evictFromSession(T entity) {
+        Session session = Session.current();
+        if (session != null) {
+            session.evict(entityClass, getIdByAnnotation(entity));
+        }
+    }
+
+    /**
+     * This method removes a deleted entity from the Session open on the current thread and from the EntityCache.
+     *
+     * @param id The ID of the deleted entity.
+     */
+    void evict(Long id) {
+        Session session = Session.current();
+        if (session != null) {
+            session.evict(entityClass, id);
+        }
+        evictFromCache(id);
+    }
+
+    /**
+     * This method removes an entity from the shared EntityCache, if one is set.
+     * It should be called whenever a row read by the find by ID SQL of the entity changes.
      *
-     * Here is a step-by-step explanation of what this method does:
-     * 1. It uses reflection to get all declared methods of the current class.
-     * 2. It filters out methods that do not have the SQL annotation.
-     * 3. It maps each method to its SQL annotation.
-     * 4. It filters out SQL annotations that do not match the provided CRUD operation type.
-     * 5. It maps each SQL annotation to its value (i.e., the SQL query).
-     * 6. It tries to get the first SQL query from the stream. If no SQL query is found, it uses the provided Supplier to get a default SQL query.
+     * @param id The ID of the changed entity, ignored if null.
      */
-    private String getSqlByAnnotation(CrudOperation operationType, Supplier<String> sqlGetter) {
-        Stream<SQL> multiSqlStream = Arrays.stream(this.getClass().getDeclaredMethods())
-                .filter(method -> method.isAnnotationPresent(SQLContainer.class))
-                .map(m -> m.getAnnotation(SQLContainer.class))
-                .flatMap(sqlContainer -> Arrays.stream(sqlContainer.value()));
+    protected void evictFromCache(Long id) {
+        EntityCache<T> cache = this.cache;
+        if (cache != null && id != null) {
+            cache.invalidate(id);
+        }
+    }
 
-        Stream<SQL> singleSqlStream = Arrays.stream(this.getClass().getDeclaredMethods())
-                .filter(method -> method.isAnnotationPresent(SQL.class))
-                .map(method -> method.getAnnotation(SQL.class));
+    /**
+     * This method sets the EntityCache shared by all threads using this repository and consulted by findById.
+     * Both the on-heap cache (see LruEntityCache) and the off-heap cache (see OffHeapEntityCache) keep the entities encoded
+     * and build a new instance on every hit, so callers may modify the found entities.
+     *
+     * @param cache The cache to use, or null to disable caching.
+     */
+    public void setCache(EntityCache<T> cache) {
+        this.cache = cache;
+    }
 
-        return Stream.concat(multiSqlStream, singleSqlStream)
-                .filter(sql -> sql.operationType().equals(operationType))
-                .map(SQL::value)
-                .findFirst().orElseGet(sqlGetter);
+    /**
+     * This method returns the counters of the EntityCache of this repository.
+     *
+     * @return The cache statistics, or empty if no cache is set.
+     */
+    public Optional<CacheStats> getCacheStats() {
+        EntityCache<T> cache = this.cache;
+        return cache == null ? Optional.empty() : Optional.of(cache.stats());
+    }
+
+    @SuppressWarnings("unchecked")
+    private Class<T> resolveEntityClass() {
+        for (Class<?> type = getClass(); type != CRUDRepository.class; type = type.getSuperclass()) {
+            if (type.getGenericSuperclass() instanceof ParameterizedType superclass
+                    && superclass.getRawType() == CRUDRepository.class
+                    && superclass.getActualTypeArguments()[0] instanceof Class<?> entityType) {
+                return (Class<T>) entityType;
+            }
+        }
+        return (Class<T>) Object.class;
+    }
+
+    /**
+     * This method returns how many times a prepared statement was reused from the statement caches of this repository's Connections.
+     *
+     * @return The number of statement cache hits.
+     */
+    public long getStatementCacheHitCount() {
+        return connections.getStatementCacheHitCount();
+    }
+
+    /**
+     * This method returns how many times a statement had to be prepared because it was not in the statement caches.
+     *
+     * @return The number of statement cache misses.
+     */
+    public long getStatementCacheMissCount() {
+        return connections.getStatementCacheMissCount();
+    }
+
+    /**
+     * This method closes all statements prepared by this repository and, for a pooled repository, the pooled Connections.
+     * A Connection passed to the constructor is not closed, as it is owned by the caller.
+     */
+    @Override
+    public void close() {
+        connections.close();
+    }
+
+    /**
+     * Retrieves the SQL query associated with a specific CRUD operation of this repository.
+     * The queries are resolved once per repository class when the first instance is created (see resolveSqlByOperation),
+     * so this is a plain map lookup without any reflection.
+     * It is not called by the constructor, so overriding methods can use the fields of the subclass.
+     *
+     * @param operationType The type of the CRUD operation whose SQL query should be retrieved.
+     * @return The SQL query associated with the CRUD operation, or null for an optional operation without SQL.
+     */
+    protected String getSql(CrudOperation operationType) {
+        return sqlByOperation.get(operationType);
+    }
+
+    private Map<CrudOperation, String> getSqlByOperation() throws UnableToInitializeRepositoryException {
+        Map<CrudOperation, String> sql = SQL_BY_REPOSITORY_CLASS.get(getClass());
+        if (sql == null) {
+            sql = resolveSqlByOperation();
+            Map<CrudOperation, String> existing = SQL_BY_REPOSITORY_CLASS.putIfAbsent(getClass(), sql);
+            if (existing != null) {
+                sql = existing;
+            }
+        }
+        return sql;
+    }
+
+    /**
+     * Resolves the SQL queries of all CRUD operations of this repository class.
+     * For every operation it looks for a SQL annotation (directly or inside a SQLContainer) on the declared methods
+     * of the repository class and its superclasses, the most specific class first.
+     * If no annotation is found, it uses the corresponding getter (e.g. getFindAllSql) to get a default SQL query.
+     * The repository fails fast if any operation has no SQL at all, instead of throwing NoSqlException mid-request.
+     *
+     * @return An immutable map of the SQL query for every CRUD operation.
+     * @throws UnableToInitializeRepositoryException If no SQL is provided for one or more operations.
+     */
+    private Map<CrudOperation, String> resolveSqlByOperation() throws UnableToInitializeRepositoryException {
+        Map<CrudOperation, String> sqlByOperation = new EnumMap<>(CrudOperation.class);
+        for (Class<?> type = getClass(); type != CRUDRepository.class; type = type.getSuperclass()) {
+            Arrays.stream(type.getDeclaredMethods())
+                    .flatMap(method -> Arrays.stream(method.getAnnotationsByType(SQL.class)))
+                    .forEach(sql -> sqlByOperation.putIfAbsent(sql.operationType(), sql.value()));
+        }
+
+        Map<CrudOperation, Supplier<String>> sqlGetters = Map.of(
+                CrudOperation.SAVE, this::getSaveSql,
+                CrudOperation.UPDATE, this::getUpdateSql,
+                CrudOperation.DELETE, this::getDeleteSql,
+                CrudOperation.FIND_BY_ID, this::getFindByIdSql,
+                CrudOperation.FIND_ALL, this::getFindAllSql,
+                CrudOperation.COUNT, this::getCountSql);
+        List<CrudOperation> missingOperations = new ArrayList<>();
+        for (CrudOperation operation : CrudOperation.values()) {
+            if (sqlByOperation.containsKey(operation) || OPTIONAL_OPERATIONS.contains(operation)) continue;
+            try {
+                sqlByOperation.put(operation, sqlGetters.get(operation).get());
+            } catch (NoSqlException e) {
+                missingOperations.add(operation);
+            }
+        }
+        if (!missingOperations.isEmpty()) {
+            throw new UnableToInitializeRepositoryException("No SQL provided for operations " + missingOperations
+                    + " in " + getClass().getSimpleName());
+        }
+        return Collections.unmodifiableMap(sqlByOperation);
     }
 
     /**
      * This method is used to find the ID of an entity by looking for a field that is annotated with the Id annotation.
-     * It uses reflection to get all declared fields of the entity's class and filters out fields that do not have the Id annotation.
-     * It then tries to get the value of the annotated field, which should be the ID of the entity.
+     * The field is resolved once per entity class and accessed through a cached MethodHandle (see IdAccessor),
+     * so no reflection happens on this hot path.
      * If no such field is found, a NoIdFoundException is thrown.
      *
      * @param entity The entity whose ID should be found.
@@ -249,42 +1008,19 @@ public abstract class CRUDRepository<T> {
      * @throws NoIdFoundException If no field is found that is annotated with the Id annotation.
      */
     protected Long getIdByAnnotation(T entity) {
-        return Arrays.stream(entity.getClass().getDeclaredFields())
-                .filter(field -> field.isAnnotationPresent(Id.class))
-                .map(field -> {
-                    field.setAccessible(true);
-                    Long id = null;
-                    try {
-                        id = (Long) field.get(entity);
-                    } catch (IllegalAccessException e) {
-                        e.printStackTrace();
-                    }
-                    return id;
-                })
-                .findFirst()
-                .orElseThrow(() -> new NoIdFoundException("No ID annotated field found in entity: " + entity));
+        return IdAccessor.forClass(entity.getClass()).get(entity);
     }
 
     /**
      * This method is used to set the ID of an entity by looking for a field that is annotated with the Id annotation.
-     * It uses reflection to get all declared fields of the entity's class and filters out fields that do not have the Id annotation.
-     * It then tries to set the value of the annotated field, which should be the ID of the entity.
-     * If an IllegalAccessException occurs, it prints the stack trace.
+     * The field is resolved once per entity class and accessed through a cached MethodHandle (see IdAccessor).
+     * If the field cannot be set, an UnableToSaveException is thrown.
      *
      * @param entity The entity whose ID should be set.
      * @param id The ID to be set.
      */
     protected void setIdByAnnotation(T entity, Long id) throws UnableToSaveException {
-        Arrays.stream(entity.getClass().getDeclaredFields())
-                .filter(field -> field.isAnnotationPresent(Id.class))
-                .forEach(field -> {
-                    field.setAccessible(true);
-                    try {
-                        field.set(entity, id);
-                    } catch (IllegalAccessException e) {
-                        throw new UnableToSaveException("Unable to set ID for entity: " + entity);
-                    }
-                });
+        IdAccessor.forClass(entity.getClass()).set(entity, id);
     }
 
     /**
@@ -351,6 +1087,26 @@ public abstract class CRUDRepository<T> {
      */
     protected void postSave(T entity, long id) {}
 
+    /**
+     * This method is called before a batch of entities is saved to the database by saveAll.
+     * It can be overridden in subclasses to save the entities referenced by the batch first, so mapForSave only has to link them.
+     * By default, this method does nothing.
+     *
+     * @param entities The entities that are about to be saved.
+     */
+    protected void preSaveAll(List<T> entities) {}
+
+    /**
+     * This method is called after a batch of entities is saved to the database by saveAll.
+     * It can be overridden in subclasses to process the whole batch at once, e.g. to save related entities in another batch.
+     * By default, this method calls postSave for every entity of the batch.
+     *
+     * @param entities The entities that have just been saved to the database, with their IDs already set.
+     */
+    protected void postSaveAll(List<T> entities) {
+        entities.forEach(entity -> postSave(entity, getIdByAnnotation(entity)));
+    }
+
     /**
      * This method is used to map the entity's fields to the PreparedStatement's parameters for the save operation.
      * The implementation of this method will vary depending on the specific entity type.
@@ -371,6 +1127,40 @@ public abstract class CRUDRepository<T> {
      */
     abstract void mapForUpdate(T entity, PreparedStatement ps) throws SQLException;
 
+    /**
+     * This method returns the columns written by the update SQL, in the order of getUpdatableValues.
+     * They are compared with the snapshots of the open Session to find out which columns of an entity changed (see updateAll).
+     * By default, it returns an empty list, which means the repository doesn't track changes.
+     *
+     * @return The names of the updatable columns.
+     */
+    List<String> getUpdatableColumns() {
+        return List.of();
+    }
+
+    /**
+     * This method returns the values of the updatable columns of the entity, as they are bound to the update statement.
+     *
+     * @param entity The entity to read the values from.
+     * @return The values, in the order of getUpdatableColumns.
+     */
+    Object[] getUpdatableValues(T entity) {
+        return new Object[0];
+    }
+
+    /**
+     * This method builds the SQL updating only the given columns of an entity.
+     * The parameters are the values of the columns in the given order, followed by the ID of the entity.
+     * The built SQL is cached per set of columns, so it is prepared like any other statement.
+     *
+     * @param columns The changed columns, in the order of getUpdatableColumns.
+     * @return The update SQL.
+     * @throws NoSqlException If the repository doesn't track changes.
+     */
+    String buildUpdateSql(List<String> columns) throws NoSqlException {
+        throw new NoSqlException("No SQL provided");
+    }
+
 
     /**
      * This method is used to extract an entity from the ResultSet object.
@@ -381,4 +1171,43 @@ public abstract class CRUDRepository<T> {
      * @throws SQLException If a database access error occurs or this method is called on a closed ResultSet.
      */
     abstract T extractEntityFromResultSet(ResultSet rs) throws SQLException;
+
+    /**
+     * This method is used to merge the current row of the ResultSet into an entity extracted from one of the previous rows.
+     * It allows a single entity to span several consecutive rows, e.g. when its children are fetched with a join.
+     * Rows are only ever read moving forward, so implementations must not reposition the cursor.
+     * By default, every row is a separate entity and this method returns false.
+     *
+     * @param entity The entity extracted from the previous rows.
+     * @param rs The ResultSet positioned on the row to merge.
+     * @return true if the row belongs to the entity and was merged into it, false if the row starts a new entity.
+     * @throws SQLException If a database access error occurs or this method is called on a closed ResultSet.
+     */
+    boolean mergeRow(T entity, ResultSet rs) throws SQLException {
+        return false;
+    }
+
+    /**
+     * This method creates the RowMapper used to turn the rows of a ResultSet into entities.
+     * It is called once per ResultSet, so subclasses can resolve column indexes from the metadata upfront.
+     * By default, the rows are mapped with extractEntityFromResultSet and mergeRow,
+     * and the extracted entities are registered in the Session open on the current thread.
+     *
+     * @param metaData The metadata of the ResultSet that is going to be mapped.
+     * @return The RowMapper for the ResultSet.
+     * @throws SQLException If the metadata cannot be read.
+     */
+    RowMapper<T> createRowMapper(ResultSetMetaData metaData) throws SQLException {
+        return new RowMapper<>() {
+            @Override
+            public T extract(ResultSet rs) throws SQLException {
+                return registerInSession(extractEntityFromResultSet(rs));
+            }
+
+            @Override
+            public boolean merge(T entity, ResultSet rs) throws SQLException {
+                return mergeRow(entity, rs);
+            }
+        };
+    }
 }
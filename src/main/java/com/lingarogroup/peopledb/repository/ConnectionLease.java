@@ -0,0 +1,59 @@
+package com.lingarogroup.peopledb.repository;
+
+import java.sql.Connection;
+
+/**
+ * This class represents a physical Connection handed out by a ConnectionProvider, together with its StatementCache.
+ * A lease is bound to the thread that acquired it. Nested acquisitions on that thread (e.g. saving the addresses
+ * of a person while the person is being saved) get the same lease back, so they run on the same Connection and transaction.
+ * The Connection goes back to the provider when the outermost acquisition is closed.
+ */
+final class ConnectionLease implements AutoCloseable {
+    private final ConnectionProvider provider;
+    private final Connection connection;
+    private final StatementCache statements;
+    private Thread owner;
+    private int depth;
+
+    ConnectionLease(ConnectionProvider provider, Connection connection, StatementCache statements) {
+        this.provider = provider;
+        this.connection = connection;
+        this.statements = statements;
+    }
+
+    Connection connection() {
+        return connection;
+    }
+
+    StatementCache statements() {
+        return statements;
+    }
+
+    synchronized boolean isHeldBy(Thread thread) {
+        return depth > 0 && owner == thread;
+    }
+
+    synchronized void enter(Thread thread) {
+        owner = thread;
+        depth++;
+    }
+
+    /**
+     * This method ends one acquisition of the lease.
+     * When the outermost acquisition ends, the Connection is returned to the provider.
+     */
+    @Override
+    public void close() {
+        boolean released;
+        synchronized (this) {
+            if (depth == 0) return;
+            released = --depth == 0;
+            if (released) {
+                owner = null;
+            }
+        }
+        if (released) {
+            provider.released(this);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.lingarogroup.peopledb.repository;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class is a lightweight pool of Connections obtained from a DataSource, e.g. an embedded H2 JdbcDataSource.
+ * Connections are opened lazily, up to the maximum pool size, and reused afterwards together with their StatementCache,
+ * so every pooled Connection keeps its prepared statements.
+ * A thread that cannot get a Connection within the timeout gets a SQLException.
+ * Closing the pool closes all idle Connections; Connections still in use are closed when they are given back.
+ */
+final class ConnectionPool extends ConnectionProvider {
+    public static final int DEFAULT_MAX_SIZE = 10;
+    public static final long DEFAULT_TIMEOUT_MILLIS = 30_000;
+
+    private final DataSource dataSource;
+    private final long timeoutMillis;
+    private final Semaphore permits;
+    private final BlockingQueue<ConnectionLease> idle = new LinkedBlockingQueue<>();
+    private final Set<ConnectionLease> all = ConcurrentHashMap.newKeySet();
+    private volatile boolean closed;
+
+    ConnectionPool(DataSource dataSource, int maxSize, long timeoutMillis) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Pool size must be greater than 0, but was: " + maxSize);
+        }
+        this.dataSource = dataSource;
+        this.timeoutMillis = timeoutMillis;
+        this.permits = new Semaphore(maxSize, true);
+    }
+
+    @Override
+    ConnectionLease borrow() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+        try {
+            if (!permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new SQLException("Timed out after " + timeoutMillis + " ms waiting for a pooled connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a pooled connection", e);
+        }
+        try {
+            ConnectionLease lease;
+            while ((lease = idle.poll()) != null) {
+                if (!lease.connection().isClosed()) {
+                    return lease;
+                }
+                discard(lease);
+            }
+            return open();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private ConnectionLease open() throws SQLException {
+        Connection connection = dataSource.getConnection();
+        ConnectionLease lease = new ConnectionLease(this, connection, new StatementCache(connection));
+        all.add(lease);
+        return lease;
+    }
+
+    @Override
+    void giveBack(ConnectionLease lease) {
+        try {
+            if (closed || lease.connection().isClosed()) {
+                discard(lease);
+            } else {
+                idle.offer(lease);
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            discard(lease);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void discard(ConnectionLease lease) {
+        all.remove(lease);
+        lease.statements().close();
+        try {
+            lease.connection().close();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    long getStatementCacheHitCount() {
+        return all.stream().mapToLong(lease -> lease.statements().getHitCount()).sum();
+    }
+
+    @Override
+    long getStatementCacheMissCount() {
+        return all.stream().mapToLong(lease -> lease.statements().getMissCount()).sum();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        ConnectionLease lease;
+        while ((lease = idle.poll()) != null) {
+            discard(lease);
+        }
+    }
+}
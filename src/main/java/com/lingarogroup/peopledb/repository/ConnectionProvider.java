@@ -0,0 +1,60 @@
+package com.lingarogroup.peopledb.repository;
+
+import java.sql.SQLException;
+
+/**
+ * This class hands out Connections to the repositories, one operation or one transaction at a time.
+ * The lease acquired by a thread is remembered until it is released, so nested acquisitions on the same thread
+ * reuse the same Connection instead of borrowing another one (or waiting for one).
+ * Subclasses decide where the Connections come from and how many threads can hold one at the same time.
+ */
+abstract class ConnectionProvider implements AutoCloseable {
+    private final ThreadLocal<ConnectionLease> currentLease = new ThreadLocal<>();
+
+    /**
+     * This method returns the lease already held by the current thread, or borrows a new one.
+     * The returned lease must be closed after use, preferably with a try-with-resources block.
+     *
+     * @return The lease of a Connection for the current thread.
+     * @throws SQLException If no Connection can be obtained.
+     */
+    ConnectionLease acquire() throws SQLException {
+        Thread thread = Thread.currentThread();
+        ConnectionLease lease = currentLease.get();
+        if (lease == null || !lease.isHeldBy(thread)) {
+            lease = borrow();
+            currentLease.set(lease);
+        }
+        lease.enter(thread);
+        return lease;
+    }
+
+    void released(ConnectionLease lease) {
+        if (currentLease.get() == lease) {
+            currentLease.remove();
+        }
+        giveBack(lease);
+    }
+
+    /**
+     * This method borrows a lease which is not held by any thread, waiting for one if necessary.
+     *
+     * @return The borrowed lease.
+     * @throws SQLException If no Connection can be obtained.
+     */
+    abstract ConnectionLease borrow() throws SQLException;
+
+    /**
+     * This method takes back a lease after its outermost acquisition has been closed.
+     *
+     * @param lease The lease to take back.
+     */
+    abstract void giveBack(ConnectionLease lease);
+
+    abstract long getStatementCacheHitCount();
+
+    abstract long getStatementCacheMissCount();
+
+    @Override
+    public abstract void close();
+}
@@ -0,0 +1,70 @@
+package com.lingarogroup.peopledb.repository;
+
+import com.lingarogroup.peopledb.exception.UnableToLoadException;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * This iterator turns the rows of a forward-only ResultSet into entities.
+ * A single entity may span several consecutive rows (e.g. one row per child of a join).
+ * The first row of an entity is extracted with the repository's RowMapper, and the following rows are offered to its merge method
+ * until a row belongs to another entity. That row starts the next entity, so the cursor never has to move backwards.
+ * Only the entity that is currently being built is kept in memory.
+ *
+ * @param <T> The type of the entities read from the ResultSet.
+ */
+class EntityRowIterator<T> implements Iterator<T> {
+    private final CRUDRepository<T> repository;
+    private final ResultSet rs;
+    private RowMapper<T> rowMapper;
+    private T current;
+    private T next;
+    private boolean exhausted;
+
+    EntityRowIterator(CRUDRepository<T> repository, ResultSet rs) {
+        this.repository = repository;
+        this.rs = rs;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next != null) return true;
+        if (exhausted) return false;
+        try {
+            while (rs.next()) {
+                if (rowMapper == null) {
+                    rowMapper = repository.createRowMapper(rs.getMetaData());
+                }
+                if (current != null && rowMapper.merge(current, rs)) {
+                    continue;
+                }
+                T finished = current;
+                current = rowMapper.extract(rs);
+                if (finished != null) {
+                    next = finished;
+                    return true;
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            throw new UnableToLoadException("Unable to read entities from result set");
+        }
+        exhausted = true;
+        next = current;
+        current = null;
+        return next != null;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        T entity = next;
+        next = null;
+        return entity;
+    }
+}
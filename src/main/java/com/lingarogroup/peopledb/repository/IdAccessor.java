@@ -0,0 +1,106 @@
+package com.lingarogroup.peopledb.repository;
+
+import com.lingarogroup.peopledb.annotation.Id;
+import com.lingarogroup.peopledb.exception.NoIdFoundException;
+import com.lingarogroup.peopledb.exception.UnableToSaveException;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+
+/**
+ * This class reads and writes the field annotated with the Id annotation of an entity class.
+ * The field is looked up with reflection only once per entity class, and turned into MethodHandles,
+ * which are cached in a ClassValue. Every following get or set is a direct MethodHandle call,
+ * without streaming over the declared fields, calling setAccessible or going through Field.get and Field.set.
+ * The handles are fields of the accessor of each class rather than static final constants, so the JIT cannot constant-fold them,
+ * and the IDs are passed as boxed Longs (as declared by the entities), so the calls are cheaper but not allocation-free.
+ */
+final class IdAccessor {
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Long.class, Object.class);
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Long.class);
+
+    private static final ClassValue<IdAccessor> ACCESSORS = new ClassValue<>() {
+        @Override
+        protected IdAccessor computeValue(Class<?> type) {
+            return createAccessor(type);
+        }
+    };
+
+    private final MethodHandle getter;
+    private final MethodHandle setter;
+
+    private IdAccessor(MethodHandle getter, MethodHandle setter) {
+        this.getter = getter;
+        this.setter = setter;
+    }
+
+    /**
+     * This method returns the cached accessor of the Id annotated field of the given entity class.
+     *
+     * @param type The entity class.
+     * @return The accessor of the Id field, created on the first call for the class.
+     */
+    static IdAccessor forClass(Class<?> type) {
+        return ACCESSORS.get(type);
+    }
+
+    /**
+     * This method returns the value of the Id annotated field of the entity.
+     *
+     * @param entity The entity whose ID should be read.
+     * @return The ID of the entity.
+     * @throws NoIdFoundException If the entity class has no field annotated with the Id annotation.
+     */
+    Long get(Object entity) {
+        if (getter == null) {
+            throw new NoIdFoundException("No ID annotated field found in entity: " + entity);
+        }
+        try {
+            return (Long) getter.invokeExact(entity);
+        } catch (Throwable e) {
+            throw new NoIdFoundException("Unable to read ID of entity: " + entity);
+        }
+    }
+
+    /**
+     * This method sets the value of the Id annotated field of the entity.
+     * If the entity class has no such field, nothing is set.
+     *
+     * @param entity The entity whose ID should be set.
+     * @param id The ID to be set.
+     * @throws UnableToSaveException If the field cannot be set.
+     */
+    void set(Object entity, Long id) {
+        if (setter == null) return;
+        try {
+            setter.invokeExact(entity, id);
+        } catch (Throwable e) {
+            throw new UnableToSaveException("Unable to set ID for entity: " + entity);
+        }
+    }
+
+    private static IdAccessor createAccessor(Class<?> type) {
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            for (Field field : current.getDeclaredFields()) {
+                if (field.isAnnotationPresent(Id.class)) {
+                    return createAccessor(current, field);
+                }
+            }
+        }
+        return new IdAccessor(null, null);
+    }
+
+    private static IdAccessor createAccessor(Class<?> declaringClass, Field field) {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(declaringClass, MethodHandles.lookup());
+            // asType adapts the handles to a common signature, boxing a primitive long ID if needed
+            MethodHandle getter = lookup.unreflectGetter(field).asType(GETTER_TYPE);
+            MethodHandle setter = lookup.unreflectSetter(field).asType(SETTER_TYPE);
+            return new IdAccessor(getter, setter);
+        } catch (IllegalAccessException e) {
+            throw new NoIdFoundException("Unable to access ID field " + field.getName() + " of " + declaringClass.getName());
+        }
+    }
+}
@@ -1,21 +1,36 @@
 package com.lingarogroup.peopledb.repository;
 
+import com.lingarogroup.peopledb.exception.UnableToDeleteException;
 import com.lingarogroup.peopledb.exception.UnableToInitializeRepositoryException;
 import com.lingarogroup.peopledb.exception.UnableToLoadException;
 import com.lingarogroup.peopledb.exception.UnableToSaveException;
 import com.lingarogroup.peopledb.model.Address;
+import com.lingarogroup.peopledb.model.Page;
 import com.lingarogroup.peopledb.model.CrudOperation;
 import com.lingarogroup.peopledb.annotation.SQL;
+import com.lingarogroup.peopledb.model.FetchMode;
+import com.lingarogroup.peopledb.model.FetchType;
+import com.lingarogroup.peopledb.model.Lazy;
 import com.lingarogroup.peopledb.model.Person;
-import com.lingarogroup.peopledb.model.Region;
+import com.lingarogroup.peopledb.model.PersonAssociation;
+import com.lingarogroup.peopledb.model.PersonSummary;
 
-import java.math.BigDecimal;
+import javax.sql.DataSource;
 import java.sql.*;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class PeopleRepository extends CRUDRepository<Person> {
     // The AddressRepository is used to save the home address of a Person object.
@@ -75,26 +90,691 @@ public class PeopleRepository extends CRUDRepository<Person> {
             WHERE parent.ID = ?;
             """;
 
-    public static final String FIND_ALL_SQL = """
+    // the parent with its addresses and spouse, one row per parent
+    private static final String PARENT_GRAPH_COLUMNS = """
             SELECT
                 parent.ID AS PARENT_ID, parent.FIRST_NAME AS PARENT_FIRST_NAME, parent.LAST_NAME AS PARENT_LAST_NAME, parent.DOB AS PARENT_DOB, parent.SALARY AS PARENT_SALARY, parent.EMAIL AS PARENT_EMAIL,
-                child.ID AS CHILD_ID, child.FIRST_NAME AS CHILD_FIRST_NAME, child.LAST_NAME AS CHILD_LAST_NAME, child.DOB AS CHILD_DOB, child.SALARY AS CHILD_SALARY, child.EMAIL AS CHILD_EMAIL,
                 home.ID as HOME_ID, home.STREET_ADDRESS as HOME_STREET_ADDRESS, home.ADDRESS2 as HOME_ADDRESS2, home.CITY as HOME_CITY, home.STATE as HOME_STATE, home.POSTCODE as HOME_POSTCODE, home.COUNTRY as HOME_COUNTRY, home.COUNTY as HOME_COUNTY, home.REGION as HOME_REGION,
                 secondary.ID as SECONDARY_ID, secondary.STREET_ADDRESS as SECONDARY_STREET_ADDRESS, secondary.ADDRESS2 as SECONDARY_ADDRESS2, secondary.CITY as SECONDARY_CITY, secondary.STATE as SECONDARY_STATE, secondary.POSTCODE as SECONDARY_POSTCODE, secondary.COUNTRY as SECONDARY_COUNTRY, secondary.COUNTY as SECONDARY_COUNTY, secondary.REGION as SECONDARY_REGION,
                 spouse.ID as SPOUSE_ID, spouse.FIRST_NAME as SPOUSE_FIRST_NAME, spouse.LAST_NAME as SPOUSE_LAST_NAME, spouse.DOB as SPOUSE_DOB, spouse.SALARY as SPOUSE_SALARY, spouse.EMAIL as SPOUSE_EMAIL, spouse.HOME_ADDRESS as SPOUSE_HOME_ADDRESS, spouse.SECONDARY_ADDRESS as SPOUSE_SECONDARY_ADDRESS, spouse.SPOUSE as SPOUSE_SPOUSE, spouse.PARENT_ID as SPOUSE_PARENT_ID
-            FROM PEOPLE AS parent
-            LEFT OUTER JOIN PEOPLE AS child ON parent.ID = child.PARENT_ID
+            """;
+    private static final String PARENT_GRAPH_JOINS = """
             LEFT OUTER JOIN ADDRESSES AS home ON parent.HOME_ADDRESS = home.ID
             LEFT OUTER JOIN ADDRESSES AS secondary ON parent.SECONDARY_ADDRESS = secondary.ID
             LEFT OUTER JOIN PEOPLE AS spouse ON parent.SPOUSE = spouse.ID
             """;
+    // the parent graph repeated for every child of the parent
+    private static final String PERSON_GRAPH_COLUMNS = PARENT_GRAPH_COLUMNS + """
+                , child.ID AS CHILD_ID, child.FIRST_NAME AS CHILD_FIRST_NAME, child.LAST_NAME AS CHILD_LAST_NAME, child.DOB AS CHILD_DOB, child.SALARY AS CHILD_SALARY, child.EMAIL AS CHILD_EMAIL
+            """;
+    private static final String PERSON_GRAPH_JOINS = """
+            LEFT OUTER JOIN PEOPLE AS child ON parent.ID = child.PARENT_ID
+            """ + PARENT_GRAPH_JOINS;
+
+    public static final String FIND_ALL_SQL = PERSON_GRAPH_COLUMNS + """
+            FROM PEOPLE AS parent
+            """ + PERSON_GRAPH_JOINS + """
+            ORDER BY parent.ID
+            """;
+    // ordered by the parent, so the rows of one parent (one per child) are next to each other
+    public static final String FIND_ALL_BY_IDS_SQL = PERSON_GRAPH_COLUMNS + """
+            FROM PEOPLE AS parent
+            """ + PERSON_GRAPH_JOINS + """
+            WHERE parent.ID = ANY(?)
+            ORDER BY parent.ID
+            """;
+    public static final String FIND_ALL_PARENTS_SQL = PARENT_GRAPH_COLUMNS + """
+            FROM PEOPLE AS parent
+            """ + PARENT_GRAPH_JOINS + """
+            ORDER BY parent.ID
+            """;
+    // the limit is applied to the people in the subquery, not to the joined rows, so a page never splits a person's children
+    public static final String FIND_PAGE_SQL = PERSON_GRAPH_COLUMNS + """
+            FROM (SELECT * FROM PEOPLE WHERE ID > ? ORDER BY ID FETCH FIRST ? ROWS ONLY) AS parent
+            """ + PERSON_GRAPH_JOINS + """
+            ORDER BY parent.ID
+            """;
+    public static final String FIND_PAGE_PARENTS_SQL = PARENT_GRAPH_COLUMNS + """
+            FROM (SELECT * FROM PEOPLE WHERE ID > ? ORDER BY ID FETCH FIRST ? ROWS ONLY) AS parent
+            """ + PARENT_GRAPH_JOINS + """
+            ORDER BY parent.ID
+            """;
+    // the PEOPLE row alone, with the foreign keys of the associations, aliased like the parent in the join queries
+    private static final String PERSON_ROW_COLUMNS = """
+            SELECT
+                p.ID AS PARENT_ID, p.FIRST_NAME AS PARENT_FIRST_NAME, p.LAST_NAME AS PARENT_LAST_NAME, p.DOB AS PARENT_DOB, p.SALARY AS PARENT_SALARY, p.EMAIL AS PARENT_EMAIL,
+                p.HOME_ADDRESS AS PARENT_HOME_ADDRESS, p.SECONDARY_ADDRESS AS PARENT_SECONDARY_ADDRESS, p.SPOUSE AS PARENT_SPOUSE
+            FROM PEOPLE AS p
+            """;
+    public static final String FIND_PERSON_BY_ID_SQL = PERSON_ROW_COLUMNS + "WHERE p.ID = ?";
+    public static final String FIND_PEOPLE_BY_IDS_SQL = PERSON_ROW_COLUMNS + "WHERE p.ID = ANY(?)";
+    public static final String FIND_BASIC_PERSON_BY_ID_SQL = "SELECT ID, FIRST_NAME, LAST_NAME, DOB, SALARY, EMAIL FROM PEOPLE WHERE ID = ?";
+    public static final String EXISTS_PERSON_BY_ID_SQL = "SELECT 1 FROM PEOPLE WHERE ID = ?";
+    public static final String FIND_ASSOCIATION_IDS_SQL = "SELECT HOME_ADDRESS, SECONDARY_ADDRESS, SPOUSE FROM PEOPLE WHERE ID = ?";
+    public static final String EXISTS_PERSON_BY_EMAIL_SQL = "SELECT 1 FROM PEOPLE WHERE EMAIL = ? FETCH FIRST 1 ROWS ONLY";
+    public static final String FIND_CHILDREN_SQL = PERSON_ROW_COLUMNS + "WHERE p.PARENT_ID = ? ORDER BY p.ID";
+    // the children of a block of parents, passed as an array, with the ID of their parent for stitching them together
+    public static final String FIND_CHILDREN_OF_PARENTS_SQL = """
+            SELECT
+                p.ID AS PARENT_ID, p.FIRST_NAME AS PARENT_FIRST_NAME, p.LAST_NAME AS PARENT_LAST_NAME, p.DOB AS PARENT_DOB, p.SALARY AS PARENT_SALARY, p.EMAIL AS PARENT_EMAIL,
+                p.HOME_ADDRESS AS PARENT_HOME_ADDRESS, p.SECONDARY_ADDRESS AS PARENT_SECONDARY_ADDRESS, p.SPOUSE AS PARENT_SPOUSE,
+                p.PARENT_ID AS CHILD_OF
+            FROM PEOPLE AS p
+            WHERE p.PARENT_ID = ANY(?)
+            ORDER BY p.PARENT_ID, p.ID
+            """;
+    public static final String CHILD_OF = "CHILD_OF";
     public static final String COUNT_ALL_SQL = "SELECT COUNT(*) AS COUNT FROM PEOPLE";
     public static final String DELETE_PERSON_SQL = "DELETE FROM PEOPLE WHERE ID = ?";
+    public static final String DELETE_PEOPLE_BY_IDS_SQL = "DELETE FROM PEOPLE WHERE ID = ANY(?)";
+    // a person and all their descendants; UNION (instead of UNION ALL) stops the recursion even if the PARENT_IDs form a cycle
+    private static final String FAMILY_CTE = """
+            WITH RECURSIVE FAMILY(ID) AS (
+                SELECT ID FROM PEOPLE WHERE ID = ?
+                UNION
+                SELECT p.ID FROM PEOPLE AS p JOIN FAMILY AS f ON p.PARENT_ID = f.ID
+            )
+            """;
+    public static final String FIND_FAMILY_SQL = FAMILY_CTE + """
+            SELECT p.ID, p.PARENT_ID, p.SPOUSE, p.HOME_ADDRESS, p.SECONDARY_ADDRESS
+            FROM PEOPLE AS p
+            WHERE p.ID IN (SELECT ID FROM FAMILY)
+            """;
+    public static final String DELETE_FAMILY_SQL = FAMILY_CTE + "DELETE FROM PEOPLE WHERE ID IN (SELECT ID FROM FAMILY)";
     public static final String UPDATE_PERSON_SQL = "UPDATE PEOPLE SET FIRST_NAME = ?, LAST_NAME = ?, DOB = ?, SALARY = ? WHERE ID = ?";
+    // the columns of UPDATE_PERSON_SQL, in the same order
+    private static final List<String> UPDATABLE_COLUMNS = List.of(FIRST_NAME, LAST_NAME, DOB, SALARY);
+
+    // the people read on the current thread whose EAGER associations are waiting to be loaded
+    private final ThreadLocal<List<Person>> pendingEagerLoads = ThreadLocal.withInitial(ArrayList::new);
+
+    // every association is lazy by default, so findById is a single-table primary-key lookup
+    private volatile Map<PersonAssociation, FetchType> fetchTypes = defaultFetchTypes();
+    private volatile FetchMode childrenFetchMode = FetchMode.JOIN;
+    private volatile boolean deletingOrphanedAddresses;
+    // the SQL compiled for every shape of criteria seen so far; the shapes come from the code, so there are only a few of them
+    private final Map<PersonCriteria.Shape, String> findSqlByCriteriaShape = new ConcurrentHashMap<>();
+    private final Map<PersonCriteria.Shape, String> countSqlByCriteriaShape = new ConcurrentHashMap<>();
 
     public PeopleRepository(Connection connection) throws UnableToInitializeRepositoryException {
         super(connection);
-        addressRepository = new AddressRepository(connection);
+        // both repositories share the connections, so a person and its addresses are saved on the same connection and transaction
+        addressRepository = new AddressRepository(connections);
+    }
+
+    public PeopleRepository(DataSource dataSource) throws UnableToInitializeRepositoryException {
+        super(dataSource);
+        addressRepository = new AddressRepository(connections);
+    }
+
+    public PeopleRepository(DataSource dataSource, int maxPoolSize) throws UnableToInitializeRepositoryException {
+        super(dataSource, maxPoolSize);
+        addressRepository = new AddressRepository(connections);
+    }
+
+    /**
+     * This method is used to read one page of people using keyset (seek) pagination.
+     * Instead of skipping rows with OFFSET, the query seeks directly to the people with an ID greater than afterId,
+     * so the cost of a page does not grow with its depth.
+     * The limit applies to people, not to joined rows, so all children of a person always end up on the same page.
+     * One more person than requested is read to find out whether there is a next page.
+     * The children are joined or loaded in batches, depending on the children fetch mode (see setChildrenFetchMode).
+     *
+     * @param afterId The ID of the last person of the previous page (Page.nextAfterId), or null for the first page.
+     * @param limit The maximum number of people on the page, must be greater than 0.
+     * @return The page of people ordered by ID, with the cursor for the next page.
+     * @throws UnableToLoadException If an SQL error occurs.
+     */
+    public Page<Person> findPage(Long afterId, int limit) throws UnableToLoadException {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Page limit must be greater than 0, but was: " + limit);
+        }
+        List<Person> people = new ArrayList<>(limit + 1);
+        boolean batchesChildren = childrenFetchMode == FetchMode.BATCH;
+        try (ConnectionLease lease = connections.acquire()) {
+            PreparedStatement ps = lease.statements().prepare(batchesChildren ? FIND_PAGE_PARENTS_SQL : FIND_PAGE_SQL);
+            ps.setLong(1, afterId == null ? Long.MIN_VALUE : afterId);
+            ps.setInt(2, limit + 1);
+            try (ResultSet rs = ps.executeQuery()) {
+                new EntityRowIterator<>(this, rs).forEachRemaining(people::add);
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            throw new UnableToLoadException("Unable to find page of people after id: " + afterId);
+        }
+        List<Person> content = people.size() > limit ? people.subList(0, limit) : people;
+        if (batchesChildren) {
+            fetchChildren(content);
+        }
+        return new Page<>(content, people.size() > limit ? content.get(limit - 1).getId() : null);
+    }
+
+    /**
+     * This method is used to find all people, ordered by ID.
+     * With the JOIN children fetch mode, the children are joined onto their parents.
+     * With the BATCH children fetch mode, the parents are read first (one row per parent),
+     * and then the children are loaded for blocks of parents (see fetchChildren),
+     * so the number of rows read grows linearly with the number of people.
+     *
+     * @return A list of all people.
+     * @throws UnableToLoadException If an SQL error occurs.
+     */
+    @Override
+    public List<Person> findAll() throws UnableToLoadException {
+        if (childrenFetchMode != FetchMode.BATCH) {
+            return super.findAll();
+        }
+        List<Person> people = new ArrayList<>();
+        try (ConnectionLease lease = connections.acquire()) {
+            PreparedStatement ps = lease.statements().prepare(FIND_ALL_PARENTS_SQL);
+            try (ResultSet rs = ps.executeQuery()) {
+                new EntityRowIterator<>(this, rs).forEachRemaining(people::add);
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            throw new UnableToLoadException("Unable to find people");
+        }
+        fetchChildren(people);
+        return people;
+    }
+
+    /**
+     * This method sets how the children are loaded by findAll and findPage.
+     * streamAll always joins the children, as it reads the people without holding them in memory.
+     *
+     * @param childrenFetchMode JOIN to join the children onto their parents, BATCH to load them for blocks of parents.
+     */
+    public void setChildrenFetchMode(FetchMode childrenFetchMode) {
+        this.childrenFetchMode = childrenFetchMode;
+    }
+
+    public FetchMode getChildrenFetchMode() {
+        return childrenFetchMode;
+    }
+
+    /**
+     * This method loads the children of the given parents and adds them to their parents.
+     * The parent IDs are sent in blocks of the ID chunk size (see setIdChunkSize) as an array parameter,
+     * so every block costs a single query, returning one row per child.
+     *
+     * @param parents The parents whose children should be loaded.
+     * @throws UnableToLoadException If an SQL error occurs.
+     */
+    private void fetchChildren(List<Person> parents) throws UnableToLoadException {
+        Map<Long, Person> parentsById = new HashMap<>();
+        parents.forEach(parent -> parentsById.put(parent.getId(), parent));
+        List<Long> parentIds = new ArrayList<>(parentsById.keySet());
+        int blockSize = getIdChunkSize();
+        try (ConnectionLease lease = connections.acquire()) {
+            PreparedStatement ps = lease.statements().prepare(FIND_CHILDREN_OF_PARENTS_SQL);
+            for (int from = 0; from < parentIds.size(); from += blockSize) {
+                List<Long> block = parentIds.subList(from, Math.min(from + blockSize, parentIds.size()));
+                Array parentIdArray = lease.connection().createArrayOf("BIGINT", block.toArray());
+                try {
+                    ps.setArray(1, parentIdArray);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        RowMapper<Person> mapper = createRowMapper(rs.getMetaData());
+                        int childOf = rs.findColumn(CHILD_OF);
+                        while (rs.next()) {
+                            parentsById.get(rs.getLong(childOf)).addChild(mapper.extract(rs));
+                        }
+                    }
+                } finally {
+                    parentIdArray.free();
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            pendingEagerLoads.get().clear();
+            throw new UnableToLoadException("Unable to find children of " + parentIds.size() + " people");
+        }
+        loadEagerAssociations();
+    }
+
+    /**
+     * This method is used to read only some columns of all people, ordered by ID.
+     * It reads the PEOPLE table alone, without joining addresses, spouses or children,
+     * and maps every row to a PersonSummary, leaving the columns which are not projected null.
+     *
+     * @param projection The columns to read, e.g. Projection.of(FIRST_NAME, LAST_NAME, SALARY).
+     * @return The summaries of all people.
+     * @throws UnableToLoadException If an SQL error occurs.
+     */
+    public List<PersonSummary> findAll(Projection projection) throws UnableToLoadException {
+        List<PersonSummary> summaries = new ArrayList<>();
+        int firstName = projection.indexOf(FIRST_NAME);
+        int lastName = projection.indexOf(LAST_NAME);
+        int dob = projection.indexOf(DOB);
+        int salary = projection.indexOf(SALARY);
+        int email = projection.indexOf(EMAIL);
+        try (ConnectionLease lease = connections.acquire()) {
+            PreparedStatement ps = lease.statements().prepare(projection.getSql());
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    Timestamp dateOfBirth = dob == 0 ? null : rs.getTimestamp(dob);
+                    summaries.add(new PersonSummary(
+                            rs.getLong(projection.indexOf(ID)),
+                            firstName == 0 ? null : rs.getString(firstName),
+                            lastName == 0 ? null : rs.getString(lastName),
+                            dateOfBirth == null ? null : dateOfBirth.toLocalDateTime().atZone(ZoneId.of("+0")),
+                            salary == 0 ? null : rs.getBigDecimal(salary),
+                            email == 0 ? null : rs.getString(email)));
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            throw new UnableToLoadException("Unable to find people with projection: " + projection.getColumns());
+        }
+        return summaries;
+    }
+
+    /**
+     * This method is used to find the people meeting the criteria, filtered by the database.
+     * The criteria is compiled to parameterized SQL once per shape (see PersonCriteria), so criteria differing only in their values
+     * share the SQL and its cached PreparedStatement.
+     * Like findById, it reads only the PEOPLE rows (joining the home address only to filter or order by its region),
+     * and loads the EAGER associations before the people are returned.
+     *
+     * @param criteria The conditions the people must meet, e.g. PersonCriteria.where(LAST_NAME).eq("Smith").
+     * @return The found people, ordered as requested by the criteria, or by ID.
+     * @throws UnableToLoadException If an SQL error occurs.
+     */
+    public List<Person> findAll(PersonCriteria criteria) throws UnableToLoadException {
+        String sql = findSqlByCriteriaShape.computeIfAbsent(criteria.shape(),
+                shape -> PERSON_ROW_COLUMNS + shape.toFilterSql() + shape.toOrderBySql());
+        List<Person> people = new ArrayList<>();
+        try (ConnectionLease lease = connections.acquire()) {
+            PreparedStatement ps = lease.statements().prepare(sql);
+            List<Array> arrays = criteria.bind(lease.connection(), ps);
+            try (ResultSet rs = ps.executeQuery()) {
+                new EntityRowIterator<>(this, rs).forEachRemaining(people::add);
+            } finally {
+                for (Array array : arrays) array.free();
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            pendingEagerLoads.get().clear();
+            throw new UnableToLoadException("Unable to find people with " + criteria);
+        }
+        loadEagerAssociations();
+        return people;
+    }
+
+    /**
+     * This method is used to count the people meeting the criteria, without loading them.
+     *
+     * @param criteria The conditions the people must meet.
+     * @return The number of people meeting the criteria.
+     * @throws UnableToLoadException If an SQL error occurs.
+     */
+    public long count(PersonCriteria criteria) throws UnableToLoadException {
+        String sql = countSqlByCriteriaShape.computeIfAbsent(criteria.shape(),
+                shape -> "SELECT COUNT(*) AS COUNT FROM PEOPLE AS p\n" + shape.toFilterSql());
+        try (ConnectionLease lease = connections.acquire()) {
+            PreparedStatement ps = lease.statements().prepare(sql);
+            List<Array> arrays = criteria.bind(lease.connection(), ps);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getLong("COUNT") : 0;
+            } finally {
+                for (Array array : arrays) array.free();
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            throw new UnableToLoadException("Unable to count people with " + criteria);
+        }
+    }
+
+    /**
+     * This method is used to read the columns of a person by its ID, from the PEOPLE table alone.
+     * Unlike findById, it builds no Person, wires no associations and doesn't use the Session or the EntityCache,
+     * so it is a single primary-key lookup for callers which only need the person's own columns.
+     *
+     * @param id The ID of the person. Like in findAllById, a null ID is ignored, so nothing is found for it.
+     * @return The summary with all columns of the person, or an empty Optional if the person was not found.
+     * @throws UnableToLoadException If an SQL error occurs.
+     */
+    public Optional<PersonSummary> findBasicById(Long id) throws UnableToLoadException {
+        if (id == null) {
+            return Optional.empty();
+        }
+        try (ConnectionLease lease = connections.acquire()) {
+            PreparedStatement ps = lease.statements().prepare(FIND_BASIC_PERSON_BY_ID_SQL);
+            ps.setLong(1, id);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) {
+                    return Optional.empty();
+                }
+                Timestamp dateOfBirth = rs.getTimestamp(4);
+                return Optional.of(new PersonSummary(rs.getLong(1), rs.getString(2), rs.getString(3),
+                        dateOfBirth == null ? null : dateOfBirth.toLocalDateTime().atZone(ZoneId.of("+0")),
+                        rs.getBigDecimal(5), rs.getString(6)));
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            throw new UnableToLoadException("Unable to find basic person with id: " + id);
+        }
+    }
+
+    /**
+     * This method is used to check whether a person with the given email exists, without loading any person.
+     *
+     * @param email The email to look for.
+     * @return true if at least one person has the email.
+     * @throws UnableToLoadException If an SQL error occurs.
+     */
+    public boolean existsByEmail(String email) throws UnableToLoadException {
+        try (ConnectionLease lease = connections.acquire()) {
+            PreparedStatement ps = lease.statements().prepare(EXISTS_PERSON_BY_EMAIL_SQL);
+            ps.setString(1, email);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next();
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            throw new UnableToLoadException("Unable to check if person exists with email: " + email);
+        }
+    }
+
+    /**
+     * This method sets when an association of the people found by findById is loaded.
+     * A LAZY association is loaded by a separate query on the first access to it, through this repository.
+     * An EAGER association is loaded by findById before the person is returned.
+     * If all associations are EAGER, findById loads the whole graph with a single join query instead.
+     *
+     * @param association The association to configure.
+     * @param fetchType When the association should be loaded.
+     */
+    public void setFetchType(PersonAssociation association, FetchType fetchType) {
+        Map<PersonAssociation, FetchType> newFetchTypes = new EnumMap<>(fetchTypes);
+        newFetchTypes.put(association, fetchType);
+        fetchTypes = newFetchTypes;
+    }
+
+    public FetchType getFetchType(PersonAssociation association) {
+        return fetchTypes.get(association);
+    }
+
+    /**
+     * This method returns the SQL of the operation, using the single join queries for finding by ID (and by IDs)
+     * when all associations are fetched eagerly.
+     *
+     * @param operationType The type of the CRUD operation whose SQL query should be retrieved.
+     * @return The SQL query associated with the CRUD operation.
+     */
+    @Override
+    protected String getSql(CrudOperation operationType) {
+        if (operationType == CrudOperation.FIND_BY_ID && !fetchTypes.containsValue(FetchType.LAZY)) {
+            return FIND_BY_ID_SQL;
+        }
+        if (operationType == CrudOperation.FIND_ALL_BY_ID && !fetchTypes.containsValue(FetchType.LAZY)) {
+            return FIND_ALL_BY_IDS_SQL;
+        }
+        return super.getSql(operationType);
+    }
+
+    /**
+     * This method is used to find a person by its ID.
+     * By default, it reads only the PEOPLE row of the person and its associations are loaded on the first access.
+     * The associations configured as EAGER (see setFetchType) are loaded before the person is returned.
+     *
+     * @param id The ID of the person to be found.
+     * @return An Optional that contains the found person, or an empty Optional if the person was not found.
+     * @throws UnableToLoadException If an SQL error occurs.
+     */
+    @Override
+    public Optional<Person> findById(Long id) throws UnableToLoadException {
+        Optional<Person> person;
+        try {
+            person = super.findById(id);
+        } catch (RuntimeException e) {
+            pendingEagerLoads.get().clear();
+            throw e;
+        }
+        person.ifPresent(this::wireUnresolvedAssociations);
+        loadEagerAssociations();
+        return person;
+    }
+
+    /**
+     * This method is used to find the people with the given IDs, with up to the ID chunk size of IDs per query (see CRUDRepository.findAllById).
+     * Like findById, it reads only the PEOPLE rows by default and loads the EAGER associations before the people are returned.
+     *
+     * @param ids The IDs of the people to be found.
+     * @return The found people in the order of the IDs, without the IDs which were not found.
+     * @throws UnableToLoadException If an SQL error occurs.
+     */
+    @Override
+    public List<Person> findAllById(Collection<Long> ids) throws UnableToLoadException {
+        List<Person> people;
+        try {
+            people = super.findAllById(ids);
+        } catch (RuntimeException e) {
+            pendingEagerLoads.get().clear();
+            throw e;
+        }
+        people.forEach(this::wireUnresolvedAssociations);
+        loadEagerAssociations();
+        return people;
+    }
+
+    /**
+     * This method sets up the associations of a person read from a single PEOPLE row.
+     * Every association gets a loader, which uses the foreign keys from the row (or the ID of the person for the children).
+     * The person keeps the foreign keys (see Person.getReference), so a cache can store them with the person.
+     * If any association is EAGER, the person is queued to be loaded by loadEagerAssociations once the ResultSet is closed,
+     * because the loading queries may reuse the cached statement whose ResultSet is still being read.
+     *
+     * @param person The person read from the row.
+     * @param homeAddressId The HOME_ADDRESS of the row, or null.
+     * @param secondaryAddressId The SECONDARY_ADDRESS of the row, or null.
+     * @param spouseId The SPOUSE of the row, or null.
+     */
+    void wireAssociations(Person person, Long homeAddressId, Long secondaryAddressId, Long spouseId) {
+        person.setHomeAddressLoader(homeAddressId, () -> homeAddressId == null ? Optional.empty() : addressRepository.findById(homeAddressId));
+        person.setSecondaryAddressLoader(secondaryAddressId, () -> secondaryAddressId == null ? Optional.empty() : addressRepository.findById(secondaryAddressId));
+        person.setSpouseLoader(spouseId, () -> spouseId == null ? Optional.empty() : findById(spouseId));
+        person.setChildrenLoader(() -> findChildrenByParentId(person.getId()));
+        if (fetchTypes.containsValue(FetchType.EAGER)) {
+            pendingEagerLoads.get().add(person);
+        }
+    }
+
+    /**
+     * This method sets up the associations a cache left unresolved, e.g. in a person decoded by the PersonCodec,
+     * which only stores the associations that were already loaded.
+     * The loaders work like the ones of wireAssociations, using the foreign keys the cache kept (see Person.getReference).
+     * Only if the cache didn't keep them, e.g. for the spouse of the spouse, they are read by a single primary-key query
+     * on the first access to any of these associations.
+     * The spouse and the children taken from the cache are set up as well.
+     * If any association is EAGER, the people are queued to be loaded by loadEagerAssociations.
+     *
+     * @param person The person returned by findById or findAllById.
+     */
+    private void wireUnresolvedAssociations(Person person) {
+        wireUnresolved(person);
+        if (person.isLoaded(PersonAssociation.SPOUSE)) {
+            person.getSpouse().ifPresent(this::wireUnresolved);
+        }
+        if (person.isLoaded(PersonAssociation.CHILDREN)) {
+            person.getChildren().forEach(this::wireUnresolved);
+        }
+    }
+
+    private void wireUnresolved(Person person) {
+        boolean unresolved = false;
+        for (PersonAssociation association : PersonAssociation.values()) {
+            unresolved |= person.isUnresolved(association);
+        }
+        if (!unresolved) return;
+        Lazy<AssociationIds> associationIds = Lazy.loading(() -> findAssociationIds(person.getId()));
+        if (person.isUnresolved(PersonAssociation.HOME_ADDRESS)) {
+            if (person.isReferenced(PersonAssociation.HOME_ADDRESS)) {
+                Long homeAddressId = person.getReference(PersonAssociation.HOME_ADDRESS);
+                person.setHomeAddressLoader(homeAddressId, () -> Optional.ofNullable(homeAddressId).flatMap(addressRepository::findById));
+            } else {
+                person.setHomeAddressLoader(() -> Optional.ofNullable(associationIds.get().homeAddressId()).flatMap(addressRepository::findById));
+            }
+        }
+        if (person.isUnresolved(PersonAssociation.SECONDARY_ADDRESS)) {
+            if (person.isReferenced(PersonAssociation.SECONDARY_ADDRESS)) {
+                Long secondaryAddressId = person.getReference(PersonAssociation.SECONDARY_ADDRESS);
+                person.setSecondaryAddressLoader(secondaryAddressId, () -> Optional.ofNullable(secondaryAddressId).flatMap(addressRepository::findById));
+            } else {
+                person.setSecondaryAddressLoader(() -> Optional.ofNullable(associationIds.get().secondaryAddressId()).flatMap(addressRepository::findById));
+            }
+        }
+        if (person.isUnresolved(PersonAssociation.SPOUSE)) {
+            if (person.isReferenced(PersonAssociation.SPOUSE)) {
+                Long spouseId = person.getReference(PersonAssociation.SPOUSE);
+                person.setSpouseLoader(spouseId, () -> Optional.ofNullable(spouseId).flatMap(this::findById));
+            } else {
+                person.setSpouseLoader(() -> Optional.ofNullable(associationIds.get().spouseId()).flatMap(this::findById));
+            }
+        }
+        if (person.isUnresolved(PersonAssociation.CHILDREN)) {
+            person.setChildrenLoader(() -> findChildrenByParentId(person.getId()));
+        }
+        if (fetchTypes.containsValue(FetchType.EAGER)) {
+            pendingEagerLoads.get().add(person);
+        }
+    }
+
+    private AssociationIds findAssociationIds(long personId) throws UnableToLoadException {
+        try (ConnectionLease lease = connections.acquire()) {
+            PreparedStatement ps = lease.statements().prepare(FIND_ASSOCIATION_IDS_SQL);
+            ps.setLong(1, personId);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) return new AssociationIds(null, null, null);
+                return new AssociationIds(getNullableLong(rs, HOME_ADDRESS), getNullableLong(rs, SECONDARY_ADDRESS), getNullableLong(rs, SPOUSE));
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            throw new UnableToLoadException("Unable to find associations of person with ID: " + personId);
+        }
+    }
+
+    private static Long getNullableLong(ResultSet rs, String column) throws SQLException {
+        long value = rs.getLong(column);
+        return rs.wasNull() ? null : value;
+    }
+
+    // the foreign keys of a person which are not kept by the cache
+    private record AssociationIds(Long homeAddressId, Long secondaryAddressId, Long spouseId) {
+    }
+
+    /**
+     * This method loads the EAGER associations of the people queued by wireAssociations on the current thread.
+     * While they are loaded, the people are in a Session (a temporary one if none is open),
+     * so a spouse loading its spouse gets the instance being loaded instead of looping forever.
+     */
+    private void loadEagerAssociations() {
+        List<Person> pending = pendingEagerLoads.get();
+        if (pending.isEmpty()) return;
+        List<Person> people = new ArrayList<>(pending);
+        pending.clear();
+        Map<PersonAssociation, FetchType> fetchTypes = this.fetchTypes;
+        Session current = Session.current();
+        try (Session temporary = current == null ? Session.open() : null) {
+            Session session = current == null ? temporary : current;
+            people.forEach(person -> session.register(Person.class, person.getId(), person));
+            for (Person person : people) {
+                fetchTypes.forEach((association, fetchType) -> {
+                    if (fetchType != FetchType.EAGER) return;
+                    switch (association) {
+                        case HOME_ADDRESS -> person.getHomeAddress();
+                        case SECONDARY_ADDRESS -> person.getSecondaryAddress();
+                        case SPOUSE -> person.getSpouse();
+                        case CHILDREN -> person.getChildren();
+                    }
+                });
+            }
+        }
+    }
+
+    private static Map<PersonAssociation, FetchType> defaultFetchTypes() {
+        Map<PersonAssociation, FetchType> fetchTypes = new EnumMap<>(PersonAssociation.class);
+        for (PersonAssociation association : PersonAssociation.values()) {
+            fetchTypes.put(association, FetchType.LAZY);
+        }
+        return fetchTypes;
+    }
+
+    /**
+     * This method turns the content-hash deduplication of the addresses saved with people on or off.
+     * When it is on, people living at identical addresses share a single ADDRESSES row (see AddressRepository.setDeduplicating).
+     *
+     * @param deduplicating true to deduplicate the saved addresses.
+     * @throws UnableToInitializeRepositoryException If the CONTENT_HASH column or its index cannot be created.
+     */
+    public void setDeduplicatingAddresses(boolean deduplicating) throws UnableToInitializeRepositoryException {
+        addressRepository.setDeduplicating(deduplicating);
+    }
+
+    /**
+     * This method sets whether deleteFamily also deletes the addresses of the deleted people which are no longer used by anybody else.
+     *
+     * @param deletingOrphanedAddresses true to delete the orphaned addresses.
+     */
+    public void setDeletingOrphanedAddresses(boolean deletingOrphanedAddresses) {
+        this.deletingOrphanedAddresses = deletingOrphanedAddresses;
+    }
+
+    public boolean isDeletingOrphanedAddresses() {
+        return deletingOrphanedAddresses;
+    }
+
+    /**
+     * This method is used to delete a person together with all their descendants (children, grandchildren and so on).
+     * The family is found by the database with a recursive query and deleted with a single statement (see DELETE_FAMILY_SQL),
+     * instead of walking the family on the client. The same recursive query first reads the IDs of the family,
+     * so the deleted people are evicted from the open Session and the EntityCache, and their parent and spouses from the EntityCache.
+     * If orphaned addresses are deleted (see setDeletingOrphanedAddresses), the addresses of the family which are no longer used by anybody
+     * are deleted too. Everything runs in one transaction (see inTransaction).
+     *
+     * @param id The ID of the person heading the family.
+     * @return The number of deleted people, 0 if there is no person with the ID.
+     * @throws UnableToDeleteException If a SQLException occurs.
+     */
+    public int deleteFamily(long id) throws UnableToDeleteException {
+        return inTransaction(() -> {
+            List<Long> familyIds = new ArrayList<>();
+            Set<Long> linkedPeopleIds = new HashSet<>();
+            Set<Long> addressIds = new HashSet<>();
+            int deleted;
+            try (ConnectionLease lease = connections.acquire()) {
+                PreparedStatement findPS = lease.statements().prepare(FIND_FAMILY_SQL);
+                findPS.setLong(1, id);
+                try (ResultSet rs = findPS.executeQuery()) {
+                    while (rs.next()) {
+                        familyIds.add(rs.getLong(ID));
+                        addIfNotNull(linkedPeopleIds, rs, PARENT_ID);
+                        addIfNotNull(linkedPeopleIds, rs, SPOUSE);
+                        addIfNotNull(addressIds, rs, HOME_ADDRESS);
+                        addIfNotNull(addressIds, rs, SECONDARY_ADDRESS);
+                    }
+                }
+                if (familyIds.isEmpty()) return 0;
+                PreparedStatement deletePS = lease.statements().prepare(DELETE_FAMILY_SQL);
+                deletePS.setLong(1, id);
+                deleted = deletePS.executeUpdate();
+            } catch (SQLException e) {
+                e.printStackTrace();
+                throw new UnableToDeleteException("Unable to delete family of person with id: " + id);
+            }
+            familyIds.forEach(this::evict);
+            linkedPeopleIds.forEach(this::evictFromCache);
+            if (deletingOrphanedAddresses) {
+                addressRepository.deleteOrphans(addressIds);
+            }
+            return deleted;
+        });
+    }
+
+    private static void addIfNotNull(Set<Long> ids, ResultSet rs, String column) throws SQLException {
+        long id = rs.getLong(column);
+        if (!rs.wasNull()) {
+            ids.add(id);
+        }
     }
 
     /**
@@ -122,7 +802,8 @@ public class PeopleRepository extends CRUDRepository<Person> {
 
     /**
      * This method is called after a Person entity is saved to the database.
-     * It iterates over the children of the saved Person entity and saves each child to the database.
+     * It evicts the cached parent and spouse of the saved Person entity, as their links have changed.
+     * Then it iterates over the children of the saved Person entity and saves each child to the database.
      * The save operation is performed by calling the save method of this repository.
      *
      * @param entity The Person entity that has just been saved to the database.
@@ -130,9 +811,56 @@ public class PeopleRepository extends CRUDRepository<Person> {
      */
     @Override
     protected void postSave(Person entity, long id) {
+        evictLinkedPeopleFromCache(entity);
         entity.getChildren().forEach(this::save);
     }
 
+    /**
+     * This method is called before a batch of Person entities is saved to the database by saveAll.
+     * It saves the not yet saved home and secondary addresses of the whole batch with one saveAll of the AddressRepository,
+     * so mapForSave only links them instead of inserting every address on its own.
+     * An address shared by several people of the batch is saved once.
+     *
+     * @param entities The Person entities that are about to be saved.
+     */
+    @Override
+    protected void preSaveAll(List<Person> entities) {
+        // an identity set, as equal but distinct addresses must all get an ID
+        Set<Address> seenAddresses = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<Address> unsavedAddresses = new ArrayList<>();
+        for (Person person : entities) {
+            for (Optional<Address> address : List.of(person.getHomeAddress(), person.getSecondaryAddress())) {
+                address.filter(a -> a.getId() == null && seenAddresses.add(a)).ifPresent(unsavedAddresses::add);
+            }
+        }
+        if (!unsavedAddresses.isEmpty()) {
+            addressRepository.saveAll(unsavedAddresses);
+        }
+    }
+
+    /**
+     * This method is called after a batch of Person entities is saved to the database by saveAll.
+     * Instead of saving the children one by one, it collects the children of the whole batch and saves them with saveAll,
+     * so every level of the family tree costs one batch per chunk instead of one insert per child.
+     *
+     * @param entities The Person entities that have just been saved to the database.
+     */
+    @Override
+    protected void postSaveAll(List<Person> entities) {
+        entities.forEach(this::evictLinkedPeopleFromCache);
+        List<Person> children = entities.stream()
+                .flatMap(person -> person.getChildren().stream())
+                .toList();
+        if (!children.isEmpty()) {
+            saveAll(children);
+        }
+    }
+
+    private void evictLinkedPeopleFromCache(Person person) {
+        person.getParent().ifPresent(parent -> evictFromCache(parent.getId()));
+        person.getSpouse().ifPresent(spouse -> evictFromCache(spouse.getId()));
+    }
+
     private static void associatePersonWithPerson(Optional<Person> person, PreparedStatement ps, int spouseIdColumnIndex, String errorMessage) {
         person.ifPresentOrElse(
                 spouse ->
@@ -182,105 +910,91 @@ public class PeopleRepository extends CRUDRepository<Person> {
     }
 
     /**
-     * This method is used to extract a Person object from a ResultSet.
+     * This method returns the columns of UPDATE_PERSON_SQL, which are tracked for changes (see CRUDRepository.updateAll).
+     */
+    @Override
+    List<String> getUpdatableColumns() {
+        return UPDATABLE_COLUMNS;
+    }
+
+    @Override
+    Object[] getUpdatableValues(Person person) {
+        ZonedDateTime dateOfBirth = person.getDateOfBirth();
+        return new Object[] {person.getFirstName(), person.getLastName(),
+                dateOfBirth == null ? null : convertDobToTimestamp(dateOfBirth), person.getSalary()};
+    }
+
+    @Override
+    String buildUpdateSql(List<String> columns) {
+        return "UPDATE PEOPLE SET " + String.join(" = ?, ", columns) + " = ? WHERE ID = ?";
+    }
+
+    /**
+     * This method is used to extract a Person object from the current row of a ResultSet.
      * The SQL queries for finding by ID, finding all, counting, and deleting are provided by the SQL annotations.
+     * For finding by ID, the row carries only the person and the foreign keys of its associations (see wireAssociations).
+     * For the join queries, the row carries the parent person, its addresses, its spouse and at most one child.
+     * The remaining children of the same person come in the following rows and are merged by the PersonRowMapper.
+     * Iterating over a whole ResultSet should use createRowMapper instead, which resolves the column indexes only once.
      *
      * @param rs The ResultSet from which the Person object should be extracted.
      * @return The extracted Person object.
      * @throws SQLException If an SQL error occurs.
      */
     @Override
-    @SQL(value = FIND_BY_ID_SQL, operationType = CrudOperation.FIND_BY_ID)
+    @SQL(value = FIND_PERSON_BY_ID_SQL, operationType = CrudOperation.FIND_BY_ID)
     @SQL(value = FIND_ALL_SQL, operationType = CrudOperation.FIND_ALL)
+    @SQL(value = FIND_PEOPLE_BY_IDS_SQL, operationType = CrudOperation.FIND_ALL_BY_ID)
+    @SQL(value = EXISTS_PERSON_BY_ID_SQL, operationType = CrudOperation.EXISTS_BY_ID)
     @SQL(value = COUNT_ALL_SQL, operationType = CrudOperation.COUNT)
     @SQL(value = DELETE_PERSON_SQL, operationType = CrudOperation.DELETE)
+    @SQL(value = DELETE_PEOPLE_BY_IDS_SQL, operationType = CrudOperation.DELETE_ALL_BY_ID)
     Person extractEntityFromResultSet(ResultSet rs) throws SQLException {
-        Person parent = null;
-        do {
-            Person extractedParent = extractPerson(rs, "PARENT_");
-            if (parent == null) {
-                parent = extractedParent;
-
-            }
-            if (!extractedParent.equals(parent)) {
-                rs.previous();
-                break;
-            }
-            Address homeAddress = extractAddress(rs, "HOME_");
-            Address secondaryAddress = extractAddress(rs, "SECONDARY_");
-            Long spouseId = (Long) rs.getObject("SPOUSE_"+ID);
-            Person spouse = extractSpouse(rs, spouseId);
-            parent.setHomeAddress(homeAddress);
-            parent.setSecondaryAddress(secondaryAddress);
-            parent.setSpouse(spouse);
-            Person child = extractPerson(rs, "CHILD_");
-            if (child != null) {
-                parent.addChild(child);
-            }
-        } while (rs.next());
-        return parent;
+        return createRowMapper(rs.getMetaData()).extract(rs);
     }
 
-    private Person extractPerson(ResultSet rs, String aliasPrefix) throws SQLException {
-        long personId = rs.getLong(aliasPrefix + ID);
-        if (personId == 0) return null;
-        String firstName = rs.getString(aliasPrefix + FIRST_NAME);
-        String lastName = rs.getString(aliasPrefix + LAST_NAME);
-        Timestamp dob = rs.getTimestamp(aliasPrefix + DOB);
-        ZonedDateTime dateOFBirth = dob.toLocalDateTime().atZone(ZoneId.of("+0"));
-        BigDecimal salary = rs.getBigDecimal(aliasPrefix + SALARY);
-        return new Person(personId, firstName, lastName, dateOFBirth, salary);
-    }
-    private Set<Person> associateChildren(long personId) throws SQLException {
-        Set<Person> children = new HashSet<>();
-        ResultSet crs = this.findChildrenByParentId(personId);
-        while (crs.next()) {
-            children.add(extractEntityFromResultSet(crs));
-        }
-        return children;
+    /**
+     * This method creates a PersonRowMapper, which resolves the indexes of all aliased columns once per ResultSet
+     * and then reads every row by column index.
+     *
+     * @param metaData The metadata of the ResultSet that is going to be mapped.
+     * @return The PersonRowMapper for the ResultSet.
+     * @throws SQLException If the metadata cannot be read or has no parent ID column.
+     */
+    @Override
+    RowMapper<Person> createRowMapper(ResultSetMetaData metaData) throws SQLException {
+        return new PersonRowMapper(metaData, this);
     }
 
-    private ResultSet findChildrenByParentId(long personId) {
-        try {
-            PreparedStatement ps = connection.prepareStatement("SELECT * FROM PEOPLE WHERE PARENT_ID = ?");
+    /**
+     * This method is used to load the children of a person, each read from a single PEOPLE row
+     * with its own associations wired according to the fetch plan.
+     *
+     * @param personId The ID of the parent.
+     * @return The children of the person.
+     * @throws UnableToLoadException If an SQL error occurs.
+     */
+    private Set<Person> findChildrenByParentId(long personId) throws UnableToLoadException {
+        Set<Person> children = new HashSet<>();
+        try (ConnectionLease lease = connections.acquire()) {
+            PreparedStatement ps = lease.statements().prepare(FIND_CHILDREN_SQL);
             ps.setLong(1, personId);
-            return ps.executeQuery();
+            try (ResultSet rs = ps.executeQuery()) {
+                new EntityRowIterator<>(this, rs).forEachRemaining(children::add);
+            }
         } catch (SQLException e) {
+            e.printStackTrace();
+            pendingEagerLoads.get().clear();
             throw new UnableToLoadException("Unable to find children for person with ID: " + personId);
         }
-    }
-
-    private Person extractSpouse(ResultSet rs, Long spouseId) throws SQLException {
-        Person spouse = null;
-        if (spouseId != null) {
-            spouse = new Person(spouseId, rs.getString("SPOUSE_"+FIRST_NAME), rs.getString("SPOUSE_"+LAST_NAME), rs.getTimestamp("SPOUSE_"+DOB).toLocalDateTime().atZone(ZoneId.of("+0")), rs.getBigDecimal("SPOUSE_"+SALARY));
-            spouse.setEmail(rs.getString("SPOUSE_"+EMAIL));
-            Address spouseHomeAddress = extractAddress(rs, "HOME_");
-            Address spouseSecondaryAddress = extractAddress(rs, "SECONDARY_");
-            spouse.setHomeAddress(spouseHomeAddress);
-            spouse.setSecondaryAddress(spouseSecondaryAddress);
-        }
-        return spouse;
-    }
-
-    private Address extractAddress(ResultSet rs, String aliasPrefix) throws SQLException {
-        String addressId = aliasPrefix + AddressRepository.ID;
-        if (rs.getObject(addressId) == null) return null;
-        long id = rs.getLong(addressId);
-        String streetAddress = rs.getString(aliasPrefix + AddressRepository.STREET_ADDRESS);
-        String address2 = rs.getString(aliasPrefix + AddressRepository.ADDRESS_2);
-        String city = rs.getString(aliasPrefix + AddressRepository.CITY);
-        String state = rs.getString(aliasPrefix + AddressRepository.STATE);
-        String postcode = rs.getString(aliasPrefix + AddressRepository.POSTCODE);
-        String country = rs.getString(aliasPrefix + AddressRepository.COUNTRY);
-        String county = rs.getString(aliasPrefix + AddressRepository.COUNTY);
-        Region region = Region.valueOf(rs.getString(aliasPrefix + AddressRepository.REGION).toUpperCase());
-        return new Address(id, streetAddress, address2, city, state, postcode, country, county, region);
+        loadEagerAssociations();
+        return children;
     }
 
     private void saveAddress(PreparedStatement ps, int addressIdColumnIndex, Address address, String exceptionMessage) throws UnableToSaveException {
             try {
-                Address savedAddress = addressRepository.save(address);
+                // an address which already has an ID is only linked, not inserted again
+                Address savedAddress = address.getId() != null ? address : addressRepository.save(address);
                 ps.setLong(addressIdColumnIndex, savedAddress.getId());
             } catch (SQLException e) {
                 throw new UnableToSaveException(exceptionMessage);
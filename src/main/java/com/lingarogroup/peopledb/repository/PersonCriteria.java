@@ -0,0 +1,261 @@
+package com.lingarogroup.peopledb.repository;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * This class describes which people a query finds (see PeopleRepository.findAll(PersonCriteria)), as conditions on PersonFields joined with AND,
+ * e.g. PersonCriteria.where(LAST_NAME).eq("Smith").and(SALARY).between(low, high).and(HOME_REGION).eq(Region.WEST).
+ * The conditions are compiled to parameterized SQL, so the filtering happens in the database.
+ * The values are never part of the SQL, so all criteria with the same conditions (the same shape) share one SQL string
+ * and therefore one cached PreparedStatement, whatever their values are. A collection of values (see Condition.in) is bound
+ * as a single array parameter, so the shape doesn't depend on the size of the collection either.
+ * A criteria is a mutable builder and is not thread-safe.
+ */
+public final class PersonCriteria {
+    private final List<Predicate> predicates = new ArrayList<>();
+    private PersonField<?> orderBy = PersonField.ID;
+    private boolean descending;
+
+    private PersonCriteria() {
+    }
+
+    /**
+     * This method starts a criteria with a condition on the given field.
+     *
+     * @param field The field of the first condition.
+     * @param <V> The type of the values of the field.
+     * @return The condition, which adds itself to the new criteria.
+     */
+    public static <V> Condition<V> where(PersonField<V> field) {
+        return new PersonCriteria().and(field);
+    }
+
+    /**
+     * This method creates a criteria without conditions, finding all people.
+     */
+    public static PersonCriteria all() {
+        return new PersonCriteria();
+    }
+
+    /**
+     * This method adds another condition on the given field, which must be met as well.
+     *
+     * @param field The field of the condition.
+     * @param <V> The type of the values of the field.
+     * @return The condition, which adds itself to this criteria.
+     */
+    public <V> Condition<V> and(PersonField<V> field) {
+        return new Condition<>(Objects.requireNonNull(field, "Field must not be null"));
+    }
+
+    /**
+     * This method orders the found people by the given field, and then by ID. By default, they are ordered by ID.
+     */
+    public PersonCriteria orderBy(PersonField<?> field) {
+        orderBy = Objects.requireNonNull(field, "Field must not be null");
+        descending = false;
+        return this;
+    }
+
+    public PersonCriteria orderByDescending(PersonField<?> field) {
+        orderBy(field);
+        descending = true;
+        return this;
+    }
+
+    /**
+     * This method returns the shape of this criteria: its conditions and order without their values.
+     * Criteria with the same shape compile to the same SQL.
+     */
+    Shape shape() {
+        return new Shape(predicates.stream().map(predicate -> new ConditionShape(predicate.field(), predicate.operator())).toList(),
+                orderBy, descending);
+    }
+
+    /**
+     * This method binds the values of the conditions to the parameters of the compiled SQL, in the order of the conditions.
+     *
+     * @param connection The Connection of the statement, used to create the arrays of values.
+     * @param ps The statement prepared from the SQL of the shape of this criteria.
+     * @return The bound arrays, which must be freed after the statement is executed.
+     * @throws SQLException If a value cannot be bound.
+     */
+    List<Array> bind(Connection connection, PreparedStatement ps) throws SQLException {
+        List<Array> arrays = new ArrayList<>();
+        int index = 1;
+        for (Predicate predicate : predicates) {
+            if (predicate.operator() == Operator.IN) {
+                Array array = connection.createArrayOf(predicate.field().getSqlTypeName(), predicate.values().toArray());
+                arrays.add(array);
+                ps.setArray(index++, array);
+                continue;
+            }
+            for (Object value : predicate.values()) {
+                ps.setObject(index++, value);
+            }
+        }
+        return arrays;
+    }
+
+    @Override
+    public String toString() {
+        return predicates.stream()
+                .map(predicate -> predicate.field() + " " + predicate.operator() + " " + predicate.values())
+                .collect(Collectors.joining(" AND ", "PersonCriteria[", "]"));
+    }
+
+    /**
+     * This class is a condition on a field which is being built. Calling one of its methods adds it to the criteria.
+     *
+     * @param <V> The type of the values of the field.
+     */
+    public final class Condition<V> {
+        private final PersonField<V> field;
+
+        private Condition(PersonField<V> field) {
+            this.field = field;
+        }
+
+        public PersonCriteria eq(V value) {
+            return add(Operator.EQ, value);
+        }
+
+        public PersonCriteria notEq(V value) {
+            return add(Operator.NOT_EQ, value);
+        }
+
+        public PersonCriteria lt(V value) {
+            return add(Operator.LT, value);
+        }
+
+        public PersonCriteria le(V value) {
+            return add(Operator.LE, value);
+        }
+
+        public PersonCriteria gt(V value) {
+            return add(Operator.GT, value);
+        }
+
+        public PersonCriteria ge(V value) {
+            return add(Operator.GE, value);
+        }
+
+        /**
+         * This method adds the condition that the field is between the given values, both included.
+         */
+        public PersonCriteria between(V low, V high) {
+            return add(Operator.BETWEEN, low, high);
+        }
+
+        /**
+         * This method adds the condition that the field is one of the given values. The values are bound as a single array parameter.
+         */
+        public PersonCriteria in(Collection<? extends V> values) {
+            List<Object> jdbcValues = new ArrayList<>(values.size());
+            for (V value : values) {
+                jdbcValues.add(field.toJdbcValue(requireValue(value)));
+            }
+            predicates.add(new Predicate(field, Operator.IN, jdbcValues));
+            return PersonCriteria.this;
+        }
+
+        /**
+         * This method adds the condition that the field matches the SQL LIKE pattern, e.g. "Sm%".
+         */
+        public PersonCriteria like(String pattern) {
+            predicates.add(new Predicate(field, Operator.LIKE, List.of(requireValue(pattern))));
+            return PersonCriteria.this;
+        }
+
+        public PersonCriteria isNull() {
+            return add(Operator.IS_NULL);
+        }
+
+        public PersonCriteria isNotNull() {
+            return add(Operator.IS_NOT_NULL);
+        }
+
+        @SafeVarargs
+        private PersonCriteria add(Operator operator, V... values) {
+            List<Object> jdbcValues = new ArrayList<>(values.length);
+            for (V value : values) {
+                jdbcValues.add(field.toJdbcValue(requireValue(value)));
+            }
+            predicates.add(new Predicate(field, operator, jdbcValues));
+            return PersonCriteria.this;
+        }
+
+        private <T> T requireValue(T value) {
+            if (value == null) {
+                throw new IllegalArgumentException("Value of " + field + " must not be null, use isNull() instead");
+            }
+            return value;
+        }
+    }
+
+    enum Operator {
+        EQ("%s = ?"),
+        NOT_EQ("%s <> ?"),
+        LT("%s < ?"),
+        LE("%s <= ?"),
+        GT("%s > ?"),
+        GE("%s >= ?"),
+        BETWEEN("%s BETWEEN ? AND ?"),
+        IN("%s = ANY(?)"),
+        LIKE("%s LIKE ?"),
+        IS_NULL("%s IS NULL"),
+        IS_NOT_NULL("%s IS NOT NULL");
+
+        private final String sqlFormat;
+
+        Operator(String sqlFormat) {
+            this.sqlFormat = sqlFormat;
+        }
+
+        String toSql(String column) {
+            return String.format(sqlFormat, column);
+        }
+    }
+
+    private record Predicate(PersonField<?> field, Operator operator, List<Object> values) {}
+
+    record ConditionShape(PersonField<?> field, Operator operator) {}
+
+    /**
+     * This record is the shape of a criteria, used as the key of the compiled SQL.
+     * The fields are compared by identity, as there is exactly one instance of every PersonField.
+     */
+    record Shape(List<ConditionShape> conditions, PersonField<?> orderBy, boolean descending) {
+
+        /**
+         * This method returns the joins and the WHERE clause of the shape, to be appended to the FROM PEOPLE AS p clause.
+         */
+        String toFilterSql() {
+            StringBuilder sql = new StringBuilder();
+            boolean joinsHomeAddress = orderBy.joinsHomeAddress()
+                    || conditions.stream().anyMatch(condition -> condition.field().joinsHomeAddress());
+            if (joinsHomeAddress) {
+                sql.append("LEFT OUTER JOIN ADDRESSES AS home ON p.HOME_ADDRESS = home.ID\n");
+            }
+            if (!conditions.isEmpty()) {
+                sql.append("WHERE ").append(conditions.stream()
+                        .map(condition -> condition.operator().toSql(condition.field().getColumn()))
+                        .collect(Collectors.joining(" AND "))).append('\n');
+            }
+            return sql.toString();
+        }
+
+        String toOrderBySql() {
+            String order = orderBy.getColumn() + (descending ? " DESC" : "");
+            return orderBy == PersonField.ID ? "ORDER BY " + order : "ORDER BY " + order + ", p.ID";
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.lingarogroup.peopledb.repository;
+
+import com.lingarogroup.peopledb.model.Region;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.function.Function;
+
+/**
+ * This class lists the fields of a person which can be used in a PersonCriteria, typed by the Java type of their values.
+ * Every field knows its column in the criteria queries and how its values are bound to a PreparedStatement.
+ * HOME_REGION is the REGION of the home address, so using it joins the ADDRESSES table.
+ *
+ * @param <V> The type of the values of the field.
+ */
+public final class PersonField<V> {
+    public static final PersonField<Long> ID = new PersonField<>("ID", "p.ID", "BIGINT", false, id -> id);
+    public static final PersonField<String> FIRST_NAME = new PersonField<>("FIRST_NAME", "p.FIRST_NAME", "VARCHAR", false, name -> name);
+    public static final PersonField<String> LAST_NAME = new PersonField<>("LAST_NAME", "p.LAST_NAME", "VARCHAR", false, name -> name);
+    public static final PersonField<ZonedDateTime> DOB = new PersonField<>("DOB", "p.DOB", "TIMESTAMP", false,
+            dob -> Timestamp.valueOf(dob.withZoneSameInstant(ZoneId.of("+0")).toLocalDateTime()));
+    public static final PersonField<BigDecimal> SALARY = new PersonField<>("SALARY", "p.SALARY", "NUMERIC", false, salary -> salary);
+    public static final PersonField<String> EMAIL = new PersonField<>("EMAIL", "p.EMAIL", "VARCHAR", false, email -> email);
+    public static final PersonField<Region> HOME_REGION = new PersonField<>("HOME_REGION", "home.REGION", "VARCHAR", true, Region::name);
+
+    private final String name;
+    private final String column;
+    private final String sqlTypeName;
+    private final boolean joinsHomeAddress;
+    private final Function<V, Object> toJdbcValue;
+
+    private PersonField(String name, String column, String sqlTypeName, boolean joinsHomeAddress, Function<V, Object> toJdbcValue) {
+        this.name = name;
+        this.column = column;
+        this.sqlTypeName = sqlTypeName;
+        this.joinsHomeAddress = joinsHomeAddress;
+        this.toJdbcValue = toJdbcValue;
+    }
+
+    String getColumn() {
+        return column;
+    }
+
+    /**
+     * This method returns the SQL type name of the field, used to bind a collection of values as an array.
+     */
+    String getSqlTypeName() {
+        return sqlTypeName;
+    }
+
+    boolean joinsHomeAddress() {
+        return joinsHomeAddress;
+    }
+
+    /**
+     * This method converts a value of the field to the value bound to the PreparedStatement, e.g. a ZonedDateTime to a Timestamp in UTC.
+     */
+    Object toJdbcValue(V value) {
+        return toJdbcValue.apply(value);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
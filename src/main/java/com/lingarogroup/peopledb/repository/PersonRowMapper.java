@@ -0,0 +1,196 @@
+package com.lingarogroup.peopledb.repository;
+
+import com.lingarogroup.peopledb.model.Address;
+import com.lingarogroup.peopledb.model.Person;
+import com.lingarogroup.peopledb.model.Region;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import static com.lingarogroup.peopledb.repository.PeopleRepository.*;
+
+/**
+ * This class maps the rows of the PeopleRepository join queries (parent, child, home, secondary and spouse aliases) to Person objects.
+ * The index of every aliased column is resolved once from the ResultSetMetaData when the mapper is created,
+ * so the rows are read by column index, without building labels like "PARENT_" + FIRST_NAME and looking them up for every row.
+ * Columns missing from the query are read as null.
+ * A query reading only the PEOPLE table (no child, address or spouse aliases) may instead carry the foreign keys
+ * of the person (PARENT_HOME_ADDRESS, PARENT_SECONDARY_ADDRESS, PARENT_SPOUSE); then the associations of the person
+ * are wired by the PeopleRepository according to its fetch plan, i.e. loaded right away or on the first access.
+ * If a Session is open, the people and addresses already in it are reused instead of creating new instances,
+ * and the new ones are registered in it, so the same person (e.g. a spouse) is always the same instance.
+ */
+class PersonRowMapper implements RowMapper<Person> {
+    private static final ZoneId UTC = ZoneId.of("+0");
+    private static final int MISSING = 0;
+
+    private final PersonColumns parent;
+    private final PersonColumns child;
+    private final PersonColumns spouse;
+    private final AddressColumns home;
+    private final AddressColumns secondary;
+    private final int homeAddressId;
+    private final int secondaryAddressId;
+    private final int spouseId;
+    private final boolean wiresAssociations;
+    private final PeopleRepository repository;
+    private final Session session;
+
+    PersonRowMapper(ResultSetMetaData metaData, PeopleRepository repository) throws SQLException {
+        Map<String, Integer> indexes = new HashMap<>();
+        for (int i = metaData.getColumnCount(); i > 0; i--) {
+            // iterating backwards, so the first column wins if a label is repeated
+            indexes.put(metaData.getColumnLabel(i).toUpperCase(Locale.ROOT), i);
+        }
+        parent = PersonColumns.resolve(indexes, "PARENT_");
+        child = PersonColumns.resolve(indexes, "CHILD_");
+        spouse = PersonColumns.resolve(indexes, "SPOUSE_");
+        home = AddressColumns.resolve(indexes, "HOME_");
+        secondary = AddressColumns.resolve(indexes, "SECONDARY_");
+        homeAddressId = indexes.getOrDefault("PARENT_" + HOME_ADDRESS, MISSING);
+        secondaryAddressId = indexes.getOrDefault("PARENT_" + SECONDARY_ADDRESS, MISSING);
+        spouseId = indexes.getOrDefault("PARENT_" + SPOUSE, MISSING);
+        wiresAssociations = child.id() == MISSING && home.id() == MISSING && secondary.id() == MISSING && spouse.id() == MISSING
+                && (homeAddressId != MISSING || secondaryAddressId != MISSING || spouseId != MISSING);
+        this.repository = repository;
+        session = Session.current();
+        if (parent.id() == MISSING) {
+            throw new SQLException("Result set has no PARENT_" + ID + " column");
+        }
+    }
+
+    @Override
+    public Person extract(ResultSet rs) throws SQLException {
+        if (wiresAssociations) {
+            boolean known = session != null && session.find(Person.class, rs.getLong(parent.id())) != null;
+            Person person = extractPerson(rs, parent);
+            if (!known) {
+                repository.wireAssociations(person, getLong(rs, homeAddressId), getLong(rs, secondaryAddressId), getLong(rs, spouseId));
+            }
+            return person;
+        }
+        Person person = extractPerson(rs, parent);
+        Address homeAddress = extractAddress(rs, home);
+        Address secondaryAddress = extractAddress(rs, secondary);
+        person.setHomeAddress(homeAddress);
+        person.setSecondaryAddress(secondaryAddress);
+        person.setSpouse(extractSpouse(rs, homeAddress, secondaryAddress));
+        addChild(person, rs);
+        return person;
+    }
+
+    @Override
+    public boolean merge(Person person, ResultSet rs) throws SQLException {
+        if (rs.getLong(parent.id()) != person.getId()) {
+            return false;
+        }
+        addChild(person, rs);
+        return true;
+    }
+
+    private void addChild(Person person, ResultSet rs) throws SQLException {
+        Person extractedChild = extractPerson(rs, child);
+        if (extractedChild != null) {
+            person.addChild(extractedChild);
+        }
+    }
+
+    private Person extractSpouse(ResultSet rs, Address homeAddress, Address secondaryAddress) throws SQLException {
+        if (spouse.id() == MISSING) return null;
+        Person knownSpouse = session == null ? null : session.find(Person.class, rs.getLong(spouse.id()));
+        if (knownSpouse != null) {
+            return knownSpouse;
+        }
+        Person extractedSpouse = extractPerson(rs, spouse);
+        if (extractedSpouse != null) {
+            extractedSpouse.setHomeAddress(homeAddress);
+            extractedSpouse.setSecondaryAddress(secondaryAddress);
+        }
+        return extractedSpouse;
+    }
+
+    private Person extractPerson(ResultSet rs, PersonColumns columns) throws SQLException {
+        if (columns.id() == MISSING) return null;
+        long personId = rs.getLong(columns.id());
+        if (personId == 0) return null;
+        if (session != null) {
+            Person knownPerson = session.find(Person.class, personId);
+            if (knownPerson != null) return knownPerson;
+        }
+        String firstName = getString(rs, columns.firstName());
+        String lastName = getString(rs, columns.lastName());
+        Timestamp dob = columns.dob() == MISSING ? null : rs.getTimestamp(columns.dob());
+        ZonedDateTime dateOfBirth = dob == null ? null : dob.toLocalDateTime().atZone(UTC);
+        BigDecimal salary = columns.salary() == MISSING ? null : rs.getBigDecimal(columns.salary());
+        Person person = new Person(personId, firstName, lastName, dateOfBirth, salary);
+        person.setEmail(getString(rs, columns.email()));
+        return repository.registerInSession(person);
+    }
+
+    private Address extractAddress(ResultSet rs, AddressColumns columns) throws SQLException {
+        if (columns.id() == MISSING) return null;
+        long id = rs.getLong(columns.id());
+        if (rs.wasNull()) return null;
+        if (session != null) {
+            Address knownAddress = session.find(Address.class, id);
+            if (knownAddress != null) return knownAddress;
+        }
+        String streetAddress = getString(rs, columns.streetAddress());
+        String address2 = getString(rs, columns.address2());
+        String city = getString(rs, columns.city());
+        String state = getString(rs, columns.state());
+        String postcode = getString(rs, columns.postcode());
+        String country = getString(rs, columns.country());
+        String county = getString(rs, columns.county());
+        String regionName = getString(rs, columns.region());
+        Region region = regionName == null ? null : Region.valueOf(regionName.toUpperCase());
+        Address address = new Address(id, streetAddress, address2, city, state, postcode, country, county, region);
+        return session == null ? address : session.register(Address.class, id, address);
+    }
+
+    private static Long getLong(ResultSet rs, int columnIndex) throws SQLException {
+        if (columnIndex == MISSING) return null;
+        long value = rs.getLong(columnIndex);
+        return rs.wasNull() ? null : value;
+    }
+
+    private static String getString(ResultSet rs, int columnIndex) throws SQLException {
+        return columnIndex == MISSING ? null : rs.getString(columnIndex);
+    }
+
+    private record PersonColumns(int id, int firstName, int lastName, int dob, int salary, int email) {
+        static PersonColumns resolve(Map<String, Integer> indexes, String aliasPrefix) {
+            return new PersonColumns(
+                    indexes.getOrDefault(aliasPrefix + ID, MISSING),
+                    indexes.getOrDefault(aliasPrefix + FIRST_NAME, MISSING),
+                    indexes.getOrDefault(aliasPrefix + LAST_NAME, MISSING),
+                    indexes.getOrDefault(aliasPrefix + DOB, MISSING),
+                    indexes.getOrDefault(aliasPrefix + SALARY, MISSING),
+                    indexes.getOrDefault(aliasPrefix + EMAIL, MISSING));
+        }
+    }
+
+    private record AddressColumns(int id, int streetAddress, int address2, int city, int state, int postcode,
+                                  int country, int county, int region) {
+        static AddressColumns resolve(Map<String, Integer> indexes, String aliasPrefix) {
+            return new AddressColumns(
+                    indexes.getOrDefault(aliasPrefix + AddressRepository.ID, MISSING),
+                    indexes.getOrDefault(aliasPrefix + AddressRepository.STREET_ADDRESS, MISSING),
+                    indexes.getOrDefault(aliasPrefix + AddressRepository.ADDRESS_2, MISSING),
+                    indexes.getOrDefault(aliasPrefix + AddressRepository.CITY, MISSING),
+                    indexes.getOrDefault(aliasPrefix + AddressRepository.STATE, MISSING),
+                    indexes.getOrDefault(aliasPrefix + AddressRepository.POSTCODE, MISSING),
+                    indexes.getOrDefault(aliasPrefix + AddressRepository.COUNTRY, MISSING),
+                    indexes.getOrDefault(aliasPrefix + AddressRepository.COUNTY, MISSING),
+                    indexes.getOrDefault(aliasPrefix + AddressRepository.REGION, MISSING));
+        }
+    }
+}
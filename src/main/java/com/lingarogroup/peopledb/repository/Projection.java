@@ -0,0 +1,65 @@
+package com.lingarogroup.peopledb.repository;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import static com.lingarogroup.peopledb.repository.PeopleRepository.*;
+
+/**
+ * This class describes which columns of the PEOPLE table a projection query reads (see PeopleRepository.findAll(Projection)).
+ * The query reads only the PEOPLE table, without any joins, so the rows are as narrow as the requested columns.
+ * The column names are checked against the known columns, so they can be safely put into the SQL.
+ * The ID is always read, as the first column.
+ */
+public final class Projection {
+    private static final Set<String> PROJECTABLE_COLUMNS = Set.of(ID, FIRST_NAME, LAST_NAME, DOB, SALARY, EMAIL);
+
+    private final List<String> columns;
+    private final String sql;
+
+    private Projection(List<String> columns) {
+        this.columns = List.copyOf(columns);
+        this.sql = "SELECT " + String.join(", ", columns) + " FROM PEOPLE ORDER BY " + ID;
+    }
+
+    /**
+     * This method creates a projection of the given columns.
+     *
+     * @param columns The columns to read, e.g. PeopleRepository.FIRST_NAME.
+     * @return The projection of the ID and the given columns.
+     * @throws IllegalArgumentException If a column is not a column of a person which can be projected.
+     */
+    public static Projection of(String... columns) {
+        Set<String> projectedColumns = new LinkedHashSet<>();
+        projectedColumns.add(ID);
+        for (String column : columns) {
+            String normalizedColumn = column.toUpperCase(Locale.ROOT);
+            if (!PROJECTABLE_COLUMNS.contains(normalizedColumn)) {
+                throw new IllegalArgumentException("Unknown column: " + column + ", expected one of " + PROJECTABLE_COLUMNS);
+            }
+            projectedColumns.add(normalizedColumn);
+        }
+        return new Projection(new ArrayList<>(projectedColumns));
+    }
+
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    /**
+     * This method returns the 1-based index of the column in the rows read by this projection.
+     *
+     * @param column The column.
+     * @return The index of the column, or 0 if it is not projected.
+     */
+    int indexOf(String column) {
+        return columns.indexOf(column) + 1;
+    }
+
+    String getSql() {
+        return sql;
+    }
+}
@@ -0,0 +1,33 @@
+package com.lingarogroup.peopledb.repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * This interface turns the rows of one ResultSet into entities.
+ * A RowMapper is created once per ResultSet (see CRUDRepository.createRowMapper),
+ * so it can resolve everything that depends only on the shape of the result, like column indexes, upfront.
+ *
+ * @param <T> The type of the entities.
+ */
+interface RowMapper<T> {
+
+    /**
+     * This method extracts a new entity from the current row.
+     *
+     * @param rs The ResultSet positioned on the first row of the entity.
+     * @return The extracted entity.
+     * @throws SQLException If a database access error occurs.
+     */
+    T extract(ResultSet rs) throws SQLException;
+
+    /**
+     * This method merges the current row into an entity extracted from one of the previous rows.
+     *
+     * @param entity The entity extracted from the previous rows.
+     * @param rs The ResultSet positioned on the row to merge.
+     * @return true if the row belongs to the entity and was merged into it, false if the row starts a new entity.
+     * @throws SQLException If a database access error occurs.
+     */
+    boolean merge(T entity, ResultSet rs) throws SQLException;
+}
@@ -0,0 +1,254 @@
+package com.lingarogroup.peopledb.repository;
+
+import com.lingarogroup.peopledb.exception.UnableToMigrateSchemaException;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class creates and migrates the schema used by the PeopleRepository and the AddressRepository,
+ * so it should be run on startup, before the repositories are created.
+ * The schema is changed by numbered migrations, and the number of the last applied migration is kept in the SCHEMA_VERSION table,
+ * so every migration runs once per database and a database that is up to date is left alone.
+ * <p>
+ * The migrations only create what is missing (CREATE ... IF NOT EXISTS, ADD COLUMN IF NOT EXISTS),
+ * so a database that was set up by hand is brought to the same schema without losing its data.
+ * Besides the tables, they create the INDEXES the queries of the repositories rely on:
+ * the joins of a person to its addresses, spouse and children, the lookups by last name and email,
+ * and the unique content hash the AddressRepository deduplicates addresses with.
+ * missingIndexes reports which of them are not in the database, e.g. because they were dropped after the migration.
+ */
+public class SchemaManager {
+    static final String CREATE_SCHEMA_VERSION_SQL = """
+            CREATE TABLE IF NOT EXISTS SCHEMA_VERSION (VERSION INT PRIMARY KEY, DESCRIPTION VARCHAR(255), APPLIED_AT TIMESTAMP)
+            """;
+    static final String FIND_SCHEMA_VERSION_SQL = "SELECT MAX(VERSION) FROM SCHEMA_VERSION";
+    static final String SAVE_SCHEMA_VERSION_SQL = "INSERT INTO SCHEMA_VERSION (VERSION, DESCRIPTION, APPLIED_AT) VALUES (?, ?, ?)";
+
+    /**
+     * The indexes of the schema. Every index is on one column, which is enough for the equality lookups and joins of the repositories.
+     */
+    public static final List<Index> INDEXES = List.of(
+            new Index("PEOPLE_PARENT_ID_IDX", "PEOPLE", "PARENT_ID", false),
+            new Index("PEOPLE_SPOUSE_IDX", "PEOPLE", "SPOUSE", false),
+            new Index("PEOPLE_HOME_ADDRESS_IDX", "PEOPLE", "HOME_ADDRESS", false),
+            new Index("PEOPLE_SECONDARY_ADDRESS_IDX", "PEOPLE", "SECONDARY_ADDRESS", false),
+            new Index("PEOPLE_LAST_NAME_IDX", "PEOPLE", "LAST_NAME", false),
+            new Index("PEOPLE_EMAIL_IDX", "PEOPLE", "EMAIL", false),
+            new Index("ADDRESSES_CONTENT_HASH_IDX", "ADDRESSES", "CONTENT_HASH", true));
+
+    static final List<Migration> MIGRATIONS = List.of(
+            new Migration(1, "Create the PEOPLE and ADDRESSES tables", List.of("""
+                    CREATE TABLE IF NOT EXISTS ADDRESSES (ID BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+                        STREET_ADDRESS VARCHAR(255), ADDRESS2 VARCHAR(255), CITY VARCHAR(255), STATE VARCHAR(255), POSTCODE VARCHAR(255),
+                        COUNTRY VARCHAR(255), COUNTY VARCHAR(255), REGION VARCHAR(255), CONTENT_HASH VARCHAR(64))
+                    """, """
+                    CREATE TABLE IF NOT EXISTS PEOPLE (ID BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+                        FIRST_NAME VARCHAR(255), LAST_NAME VARCHAR(255), DOB TIMESTAMP, SALARY NUMERIC(10, 2), EMAIL VARCHAR(255),
+                        HOME_ADDRESS BIGINT, SECONDARY_ADDRESS BIGINT, SPOUSE BIGINT, PARENT_ID BIGINT)
+                    """)),
+            // tables created by hand from older DDL miss the columns added later
+            new Migration(2, "Add the columns missing from older PEOPLE and ADDRESSES tables", List.of(
+                    "ALTER TABLE PEOPLE ADD COLUMN IF NOT EXISTS EMAIL VARCHAR(255)",
+                    "ALTER TABLE PEOPLE ADD COLUMN IF NOT EXISTS HOME_ADDRESS BIGINT",
+                    "ALTER TABLE PEOPLE ADD COLUMN IF NOT EXISTS SECONDARY_ADDRESS BIGINT",
+                    "ALTER TABLE PEOPLE ADD COLUMN IF NOT EXISTS SPOUSE BIGINT",
+                    "ALTER TABLE PEOPLE ADD COLUMN IF NOT EXISTS PARENT_ID BIGINT",
+                    "ALTER TABLE ADDRESSES ADD COLUMN IF NOT EXISTS COUNTY VARCHAR(255)",
+                    "ALTER TABLE ADDRESSES ADD COLUMN IF NOT EXISTS REGION VARCHAR(255)",
+                    "ALTER TABLE ADDRESSES ADD COLUMN IF NOT EXISTS CONTENT_HASH VARCHAR(64)")),
+            new Migration(3, "Create the indexes of PEOPLE and ADDRESSES", INDEXES.stream().map(Index::toSql).toList()));
+
+    private final DataSource dataSource;
+    private final Connection connection;
+
+    /**
+     * This constructor creates a SchemaManager that opens a Connection from the DataSource for every operation.
+     *
+     * @param dataSource The DataSource of the database.
+     */
+    public SchemaManager(DataSource dataSource) {
+        this.dataSource = dataSource;
+        this.connection = null;
+    }
+
+    /**
+     * This constructor creates a SchemaManager working on a Connection owned by the caller, which is not closed.
+     *
+     * @param connection The Connection to the database.
+     */
+    public SchemaManager(Connection connection) {
+        this.dataSource = null;
+        this.connection = connection;
+    }
+
+    /**
+     * This method is used to bring the schema up to date by applying the migrations newer than the version of the database, in order.
+     * Every migration and the row recording it in SCHEMA_VERSION are run in one transaction,
+     * so a failed migration is not recorded and is retried by the next call,
+     * but databases that commit DDL implicitly (like H2) keep the statements that ran before the failure.
+     * If the Connection is already in manual-commit mode, the migrations join the transaction of the caller, who has to commit it.
+     *
+     * @return The number of applied migrations, 0 if the schema was up to date.
+     * @throws UnableToMigrateSchemaException If a SQLException occurs.
+     */
+    public int migrate() throws UnableToMigrateSchemaException {
+        return withConnection(connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute(CREATE_SCHEMA_VERSION_SQL);
+            }
+            int version = getVersion(connection);
+            int applied = 0;
+            for (Migration migration : MIGRATIONS) {
+                if (migration.version() <= version) continue;
+                apply(connection, migration);
+                applied++;
+            }
+            return applied;
+        });
+    }
+
+    /**
+     * This method is used to read the version of the schema, which is the number of the last applied migration.
+     * The SCHEMA_VERSION table is created if it does not exist.
+     *
+     * @return The version of the schema, 0 if no migration was applied.
+     * @throws UnableToMigrateSchemaException If a SQLException occurs.
+     */
+    public int getVersion() throws UnableToMigrateSchemaException {
+        return withConnection(connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute(CREATE_SCHEMA_VERSION_SQL);
+            }
+            return getVersion(connection);
+        });
+    }
+
+    /**
+     * This method is used to find the INDEXES that are not in the database, using DatabaseMetaData.getIndexInfo.
+     * An index counts as present if any index (whatever its name) starts with its column, and, for a unique index, is unique too,
+     * so indexes created by hand or for constraints (e.g. a UNIQUE constraint or a foreign key) are recognized.
+     *
+     * @return The missing indexes, empty if all of them are present.
+     * @throws UnableToMigrateSchemaException If a SQLException occurs.
+     */
+    public List<Index> missingIndexes() throws UnableToMigrateSchemaException {
+        return withConnection(connection -> {
+            DatabaseMetaData metaData = connection.getMetaData();
+            Map<String, Map<String, Boolean>> leadingColumnsByTable = new HashMap<>();
+            List<Index> missing = new ArrayList<>();
+            for (Index index : INDEXES) {
+                Map<String, Boolean> leadingColumns = leadingColumnsByTable.get(index.table());
+                if (leadingColumns == null) {
+                    leadingColumns = findLeadingColumns(connection, metaData, index.table());
+                    leadingColumnsByTable.put(index.table(), leadingColumns);
+                }
+                Boolean unique = leadingColumns.get(index.column());
+                if (unique == null || (index.unique() && !unique)) {
+                    missing.add(index);
+                }
+            }
+            return missing;
+        });
+    }
+
+    private void apply(Connection connection, Migration migration) throws SQLException {
+        boolean autoCommit = connection.getAutoCommit();
+        if (autoCommit) connection.setAutoCommit(false);
+        try {
+            try (Statement statement = connection.createStatement()) {
+                for (String sql : migration.statements()) {
+                    statement.execute(sql);
+                }
+            }
+            try (PreparedStatement ps = connection.prepareStatement(SAVE_SCHEMA_VERSION_SQL)) {
+                ps.setInt(1, migration.version());
+                ps.setString(2, migration.description());
+                ps.setTimestamp(3, Timestamp.from(Instant.now()));
+                ps.executeUpdate();
+            }
+            if (autoCommit) connection.commit();
+        } catch (SQLException e) {
+            if (autoCommit) connection.rollback();
+            throw new SQLException("Migration " + migration.version() + " (" + migration.description() + ") failed: " + e.getMessage(), e);
+        } finally {
+            if (autoCommit) connection.setAutoCommit(true);
+        }
+    }
+
+    private int getVersion(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(FIND_SCHEMA_VERSION_SQL)) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    /**
+     * This method maps the first column of every index of the table to whether any index starting with it is unique.
+     */
+    private Map<String, Boolean> findLeadingColumns(Connection connection, DatabaseMetaData metaData, String table) throws SQLException {
+        // the metadata is looked up by the stored names, which are lower case in some databases (e.g. PostgreSQL)
+        String tableName = metaData.storesLowerCaseIdentifiers() ? table.toLowerCase() : table;
+        Map<String, Boolean> leadingColumns = new HashMap<>();
+        try (ResultSet rs = metaData.getIndexInfo(connection.getCatalog(), connection.getSchema(), tableName, false, true)) {
+            while (rs.next()) {
+                String column = rs.getString("COLUMN_NAME");
+                // statistics rows have no column
+                if (column == null || rs.getShort("ORDINAL_POSITION") != 1) continue;
+                boolean unique = !rs.getBoolean("NON_UNIQUE");
+                leadingColumns.merge(column.toUpperCase(), unique, Boolean::logicalOr);
+            }
+        }
+        return leadingColumns;
+    }
+
+    private <R> R withConnection(SqlWork<R> work) throws UnableToMigrateSchemaException {
+        try {
+            if (dataSource == null) return work.run(connection);
+            try (Connection connection = dataSource.getConnection()) {
+                return work.run(connection);
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            throw new UnableToMigrateSchemaException("Unable to migrate the schema: " + e.getMessage());
+        }
+    }
+
+    @FunctionalInterface
+    private interface SqlWork<R> {
+        R run(Connection connection) throws SQLException;
+    }
+
+    /**
+     * This record describes one index of the schema.
+     *
+     * @param name The name of the index.
+     * @param table The table of the index.
+     * @param column The indexed column.
+     * @param unique Whether the index is unique.
+     */
+    public record Index(String name, String table, String column, boolean unique) {
+        /**
+         * This method is used to build the statement creating the index if it does not exist.
+         *
+         * @return The CREATE INDEX statement.
+         */
+        public String toSql() {
+            return "CREATE " + (unique ? "UNIQUE " : "") + "INDEX IF NOT EXISTS " + name + " ON " + table + " (" + column + ")";
+        }
+    }
+
+    record Migration(int version, String description, List<String> statements) {
+    }
+}
@@ -0,0 +1,134 @@
+package com.lingarogroup.peopledb.repository;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This class is a unit of work with an identity map of the entities loaded or saved by the repositories.
+ * An open session is bound to the thread that opened it. While it is open, the repositories used on that thread
+ * look entities up in the session before querying the database, and register the entities they load or save,
+ * so every (entity class, ID) pair is represented by exactly one instance within the session.
+ * The session also keeps a snapshot of the updatable columns of the registered entities, taken by the repositories
+ * which track changes, so they can tell which entities changed and in which columns (see CRUDRepository.updateAll).
+ * Sessions are not thread-safe and are not visible to other threads (e.g. to the tasks of AsyncPeopleRepository).
+ * It should be used in a try-with-resources block; closing it restores the session that was open before, if any.
+ */
+public final class Session implements AutoCloseable {
+    private static final ThreadLocal<Session> CURRENT = new ThreadLocal<>();
+
+    private final Map<Class<?>, Map<Long, Object>> identityMap = new HashMap<>();
+    private final Map<Class<?>, Map<Long, Object[]>> snapshots = new HashMap<>();
+    private final Session previous;
+    private final Thread owner;
+    private boolean closed;
+
+    private Session(Session previous) {
+        this.previous = previous;
+        this.owner = Thread.currentThread();
+    }
+
+    /**
+     * This method opens a new session and binds it to the current thread.
+     *
+     * @return The opened session.
+     */
+    public static Session open() {
+        Session session = new Session(CURRENT.get());
+        CURRENT.set(session);
+        return session;
+    }
+
+    /**
+     * This method returns the session bound to the current thread.
+     *
+     * @return The current session, or null if no session is open on this thread.
+     */
+    static Session current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * This method returns the instance of the entity registered in this session.
+     *
+     * @param type The class of the entity.
+     * @param id The ID of the entity.
+     * @param <E> The type of the entity.
+     * @return The registered instance, or null if the entity is not in this session.
+     */
+    public <E> E find(Class<E> type, Long id) {
+        if (id == null) return null;
+        Map<Long, Object> entities = identityMap.get(type);
+        return entities == null ? null : type.cast(entities.get(id));
+    }
+
+    /**
+     * This method registers an entity in this session, unless another instance of it is already registered.
+     *
+     * @param type The class of the entity.
+     * @param id The ID of the entity.
+     * @param entity The entity to register.
+     * @param <E> The type of the entity.
+     * @return The instance registered in this session: the given entity or the one registered before.
+     */
+    public <E> E register(Class<E> type, Long id, E entity) {
+        if (id == null) return entity;
+        Object registered = identityMap.computeIfAbsent(type, t -> new HashMap<>()).putIfAbsent(id, entity);
+        return registered == null ? entity : type.cast(registered);
+    }
+
+    /**
+     * This method returns the snapshot of the updatable columns of a registered entity.
+     *
+     * @return The values of the columns when the entity was registered or last updated, or null if there is no snapshot.
+     */
+    Object[] getSnapshot(Class<?> type, Long id) {
+        Map<Long, Object[]> values = snapshots.get(type);
+        return values == null ? null : values.get(id);
+    }
+
+    void putSnapshot(Class<?> type, Long id, Object[] values) {
+        snapshots.computeIfAbsent(type, t -> new HashMap<>()).put(id, values);
+    }
+
+    public void evict(Class<?> type, Long id) {
+        Map<Long, Object> entities = identityMap.get(type);
+        if (entities != null) {
+            entities.remove(id);
+        }
+        Map<Long, Object[]> values = snapshots.get(type);
+        if (values != null) {
+            values.remove(id);
+        }
+    }
+
+    public void clear() {
+        identityMap.clear();
+        snapshots.clear();
+    }
+
+    public int size() {
+        return identityMap.values().stream().mapToInt(Map::size).sum();
+    }
+
+    /**
+     * This method closes the session and binds the previously open session (if any) back to the thread.
+     *
+     * @throws IllegalStateException If the session is closed by another thread than the one which opened it.
+     */
+    @Override
+    public void close() {
+        if (closed) return;
+        if (Thread.currentThread() != owner) {
+            throw new IllegalStateException("Session must be closed by the thread which opened it");
+        }
+        closed = true;
+        clear();
+        if (CURRENT.get() == this) {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+}
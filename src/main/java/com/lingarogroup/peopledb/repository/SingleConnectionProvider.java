@@ -0,0 +1,50 @@
+package com.lingarogroup.peopledb.repository;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * This provider hands out a single Connection owned by the caller.
+ * Operations from different threads are serialized: a thread waits until the thread holding the Connection releases it.
+ * Closing the provider closes the cached statements, but not the Connection.
+ */
+final class SingleConnectionProvider extends ConnectionProvider {
+    private final ConnectionLease lease;
+    private final Semaphore available = new Semaphore(1, true);
+
+    SingleConnectionProvider(Connection connection) {
+        this.lease = new ConnectionLease(this, connection, new StatementCache(connection));
+    }
+
+    @Override
+    ConnectionLease borrow() throws SQLException {
+        try {
+            available.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for the connection", e);
+        }
+        return lease;
+    }
+
+    @Override
+    void giveBack(ConnectionLease lease) {
+        available.release();
+    }
+
+    @Override
+    long getStatementCacheHitCount() {
+        return lease.statements().getHitCount();
+    }
+
+    @Override
+    long getStatementCacheMissCount() {
+        return lease.statements().getMissCount();
+    }
+
+    @Override
+    public void close() {
+        lease.statements().close();
+    }
+}
@@ -0,0 +1,120 @@
+package com.lingarogroup.peopledb.repository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class is a bounded, least-recently-used cache of PreparedStatements of a single Connection.
+ * The statements are keyed by their SQL text (and whether they return generated keys), so every query is prepared only once
+ * and then reused across calls. When the cache is full, the least recently used statement is closed and removed.
+ * The hit and miss counters show whether the steady state re-prepares any statements.
+ * Closing the cache closes all cached statements, but not the Connection itself.
+ */
+public class StatementCache implements AutoCloseable {
+    public static final int DEFAULT_CAPACITY = 64;
+
+    private final Connection connection;
+    private final Map<Key, PreparedStatement> statements;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public StatementCache(Connection connection) {
+        this(connection, DEFAULT_CAPACITY);
+    }
+
+    public StatementCache(Connection connection, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Statement cache capacity must be greater than 0, but was: " + capacity);
+        }
+        this.connection = connection;
+        // access order makes the LinkedHashMap iterate from the least to the most recently used statement
+        this.statements = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, PreparedStatement> eldest) {
+                if (size() > capacity) {
+                    closeQuietly(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * This method returns a cached PreparedStatement for the given SQL, preparing it on the first use.
+     *
+     * @param sql The SQL of the statement.
+     * @return The cached PreparedStatement.
+     * @throws SQLException If the statement cannot be prepared.
+     */
+    public PreparedStatement prepare(String sql) throws SQLException {
+        return prepare(new Key(sql, false));
+    }
+
+    /**
+     * This method returns a cached PreparedStatement for the given SQL which returns auto-generated keys,
+     * preparing it on the first use.
+     *
+     * @param sql The SQL of the statement.
+     * @return The cached PreparedStatement.
+     * @throws SQLException If the statement cannot be prepared.
+     */
+    public PreparedStatement prepareWithGeneratedKeys(String sql) throws SQLException {
+        return prepare(new Key(sql, true));
+    }
+
+    private synchronized PreparedStatement prepare(Key key) throws SQLException {
+        PreparedStatement ps = statements.get(key);
+        if (ps != null && !ps.isClosed()) {
+            hits.incrementAndGet();
+            return ps;
+        }
+        misses.incrementAndGet();
+        ps = key.returnGeneratedKeys()
+                ? connection.prepareStatement(key.sql(), Statement.RETURN_GENERATED_KEYS)
+                : connection.prepareStatement(key.sql());
+        statements.put(key, ps);
+        return ps;
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public synchronized int size() {
+        return statements.size();
+    }
+
+    /**
+     * This method closes all cached statements and empties the cache.
+     * The Connection is not closed, as it is owned by the caller.
+     */
+    @Override
+    public synchronized void close() {
+        List<PreparedStatement> cached = new ArrayList<>(statements.values());
+        statements.clear();
+        cached.forEach(StatementCache::closeQuietly);
+    }
+
+    private static void closeQuietly(PreparedStatement ps) {
+        try {
+            ps.close();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private record Key(String sql, boolean returnGeneratedKeys) {
+    }
+}
@@ -0,0 +1,56 @@
+package com.lingarogroup.peopledb.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class LongLongHashMapTests {
+
+    @Test
+    public void canPutGetAndRemove() {
+        LongLongHashMap map = new LongLongHashMap(4);
+        map.put(1L, 10L);
+        map.put(-7L, 0L);
+        map.put(1L, 11L);
+
+        assertThat(map.get(1L)).isEqualTo(11L);
+        assertThat(map.get(-7L)).isZero();
+        assertThat(map.get(2L)).isEqualTo(LongLongHashMap.NO_VALUE);
+        assertThat(map.size()).isEqualTo(2);
+
+        assertThat(map.remove(1L, 10L)).isFalse();
+        assertThat(map.remove(1L, 11L)).isTrue();
+        assertThat(map.remove(-7L)).isZero();
+        assertThat(map.remove(-7L)).isEqualTo(LongLongHashMap.NO_VALUE);
+        assertThat(map.size()).isZero();
+        assertThatThrownBy(() -> map.put(3L, -1L)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void behavesLikeHashMapWhenGrowingAndRemoving() {
+        LongLongHashMap map = new LongLongHashMap(1);
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            long key = random.nextInt(5_000);
+            if (random.nextInt(3) == 0) {
+                assertThat(map.remove(key)).isEqualTo(expected.getOrDefault(key, LongLongHashMap.NO_VALUE));
+                expected.remove(key);
+            } else {
+                map.put(key, i);
+                expected.put(key, (long) i);
+            }
+        }
+        assertThat(map.size()).isEqualTo(expected.size());
+        expected.forEach((key, value) -> assertThat(map.get(key)).isEqualTo(value));
+
+        map.clear();
+        assertThat(map.size()).isZero();
+        assertThat(map.get(expected.keySet().iterator().next())).isEqualTo(LongLongHashMap.NO_VALUE);
+    }
+}
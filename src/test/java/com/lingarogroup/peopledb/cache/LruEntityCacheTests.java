@@ -0,0 +1,85 @@
+package com.lingarogroup.peopledb.cache;
+
+import com.lingarogroup.peopledb.model.Person;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LruEntityCacheTests {
+    private static final EntityCodec<String> STRINGS = new EntityCodec<>() {
+        @Override
+        public void encode(String entity, ByteBuffer buffer) {
+            BinaryFields.putString(buffer, entity);
+        }
+
+        @Override
+        public String decode(ByteBuffer buffer) {
+            return BinaryFields.getString(buffer);
+        }
+    };
+
+    private final AtomicLong now = new AtomicLong();
+
+    @Test
+    public void evictsLeastRecentlyUsedEntity() {
+        LruEntityCache<String> cache = new LruEntityCache<>(STRINGS, 2, Duration.ofMinutes(1), now::get);
+        cache.put(1L, "one");
+        cache.put(2L, "two");
+        cache.get(1L);
+        cache.put(3L, "three");
+
+        assertThat(cache.get(1L)).isEqualTo("one");
+        assertThat(cache.get(2L)).isNull();
+        assertThat(cache.get(3L)).isEqualTo("three");
+        assertThat(cache.stats()).isEqualTo(new CacheStats(3, 1, 1, 2));
+    }
+
+    @Test
+    public void expiresEntitiesAfterTimeToLive() {
+        LruEntityCache<String> cache = new LruEntityCache<>(STRINGS, 10, Duration.ofSeconds(5), now::get);
+        cache.put(1L, "one");
+        now.addAndGet(Duration.ofSeconds(5).toNanos());
+        assertThat(cache.get(1L)).isEqualTo("one");
+        now.addAndGet(1);
+        assertThat(cache.get(1L)).isNull();
+        assertThat(cache.stats().evictions()).isEqualTo(1);
+        assertThat(cache.stats().size()).isZero();
+    }
+
+    @Test
+    public void invalidatesEntities() {
+        LruEntityCache<String> cache = new LruEntityCache<>(STRINGS, 10, Duration.ofMinutes(1), now::get);
+        cache.put(1L, "one");
+        cache.put(2L, "two");
+        cache.invalidate(1L);
+        assertThat(cache.get(1L)).isNull();
+        cache.invalidateAll();
+        assertThat(cache.get(2L)).isNull();
+        assertThat(cache.stats().hitRate()).isZero();
+    }
+
+    @Test
+    public void handsOutCopiesOfCachedPeople() {
+        LruEntityCache<Person> cache = LruEntityCache.forPeople(10, Duration.ofMinutes(1));
+        Person john = new Person(1L, "John", "Smith", ZonedDateTime.of(1980, 11, 15, 15, 15, 0, 0, ZoneId.of("-6")), new BigDecimal("73000.50"));
+        cache.put(1L, john);
+        john.setSalary(new BigDecimal("1.00"));
+
+        Person cachedJohn = cache.get(1L);
+        assertThat(cachedJohn).isNotSameAs(john);
+        cachedJohn.setSalary(new BigDecimal("2.00"));
+        cachedJohn.setFirstName("Jack");
+
+        Person cachedAgain = cache.get(1L);
+        assertThat(cachedAgain).isNotSameAs(cachedJohn);
+        assertThat(cachedAgain.getFirstName()).isEqualTo("John");
+        assertThat(cachedAgain.getSalary()).isEqualByComparingTo("73000.50");
+    }
+}
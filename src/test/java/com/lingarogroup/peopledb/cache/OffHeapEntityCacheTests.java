@@ -0,0 +1,149 @@
+package com.lingarogroup.peopledb.cache;
+
+import com.lingarogroup.peopledb.model.Address;
+import com.lingarogroup.peopledb.model.Person;
+import com.lingarogroup.peopledb.model.PersonAssociation;
+import com.lingarogroup.peopledb.model.Region;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class OffHeapEntityCacheTests {
+    private final AtomicLong now = new AtomicLong();
+
+    @Test
+    public void rebuildsPersonGraphOnHit() {
+        OffHeapEntityCache<Person> cache = OffHeapEntityCache.forPeople(2, 4096, Duration.ofMinutes(1));
+        Person person = createPerson(1L);
+        cache.put(1L, person);
+
+        Person cachedPerson = cache.get(1L);
+
+        assertThat(cachedPerson).isEqualTo(person).isNotSameAs(person);
+        assertThat(cachedPerson.getSalary()).isEqualTo(new BigDecimal("73000.50"));
+        assertThat(cachedPerson.getEmail()).isEqualTo("john@smith.com");
+        assertThat(cachedPerson.getHomeAddress()).isEqualTo(person.getHomeAddress());
+        assertThat(cachedPerson.getSecondaryAddress()).isEmpty();
+        assertThat(cachedPerson.getSpouse()).isEqualTo(person.getSpouse());
+        assertThat(cachedPerson.getChildren()).containsExactlyElementsOf(person.getChildren());
+        assertThat(cachedPerson.getChildren().iterator().next().getParent()).containsSame(cachedPerson);
+    }
+
+    @Test
+    public void evictsOldestSlabWhenFull() {
+        OffHeapEntityCache<Person> cache = new OffHeapEntityCache<>(new PersonCodec(), 2, 1024, Duration.ofMinutes(1), now::get);
+        for (long id = 1; id <= 20; id++) {
+            cache.put(id, createPerson(id));
+        }
+
+        assertThat(cache.get(1L)).isNull();
+        assertThat(cache.get(20L)).isEqualTo(createPerson(20L));
+        assertThat(cache.stats().evictions()).isPositive();
+        assertThat(cache.stats().size()).isLessThan(20);
+    }
+
+    @Test
+    public void expiresAndInvalidatesEntities() {
+        OffHeapEntityCache<Address> cache = new OffHeapEntityCache<>(new AddressCodec(), 1, 1024, Duration.ofSeconds(5), now::get);
+        cache.put(1L, createAddress(1L));
+        cache.put(2L, createAddress(2L));
+        cache.invalidate(2L);
+        assertThat(cache.get(1L)).isEqualTo(createAddress(1L));
+        assertThat(cache.get(2L)).isNull();
+
+        now.addAndGet(Duration.ofSeconds(6).toNanos());
+        assertThat(cache.get(1L)).isNull();
+        assertThat(cache.stats()).isEqualTo(new CacheStats(1, 2, 1, 0));
+    }
+
+    @Test
+    public void cachesSpousesWithoutLoadingAssociations() {
+        OffHeapEntityCache<Person> cache = OffHeapEntityCache.forPeople(2, 4096, Duration.ofMinutes(1));
+        AtomicInteger loads = new AtomicInteger();
+        Person john = new Person(1L, "John", "Smith", ZonedDateTime.of(1980, 11, 15, 15, 15, 0, 0, ZoneId.of("+0")));
+        Person jane = new Person(2L, "Jane", "Smith", ZonedDateTime.of(1982, 1, 1, 0, 0, 0, 0, ZoneId.of("+0")));
+        john.setSpouseLoader(() -> {
+            loads.incrementAndGet();
+            return Optional.of(jane);
+        });
+        jane.setSpouseLoader(() -> {
+            loads.incrementAndGet();
+            return Optional.of(john);
+        });
+        john.setChildrenLoader(() -> {
+            loads.incrementAndGet();
+            return Set.of();
+        });
+
+        cache.put(1L, john);
+        cache.put(2L, jane);
+
+        assertThat(loads).hasValue(0);
+        Person cachedJohn = cache.get(1L);
+        assertThat(cachedJohn).isEqualTo(john);
+        assertThat(cachedJohn.isUnresolved(PersonAssociation.SPOUSE)).isTrue();
+        assertThat(cachedJohn.isUnresolved(PersonAssociation.CHILDREN)).isTrue();
+        assertThat(cachedJohn.getHomeAddress()).isEmpty();
+
+        // once loaded, the spouses refer to each other, and only the first level is cached
+        john.setSpouse(jane);
+        jane.setSpouse(john);
+        cache.put(1L, john);
+        Person cachedSpouse = cache.get(1L).getSpouse().get();
+        assertThat(cachedSpouse).isEqualTo(jane);
+        assertThat(cachedSpouse.isUnresolved(PersonAssociation.SPOUSE)).isTrue();
+        assertThat(cachedSpouse.getReference(PersonAssociation.SPOUSE)).isEqualTo(1L);
+    }
+
+    @Test
+    public void keepsForeignKeysOfAssociationsWhichAreNotLoaded() {
+        OffHeapEntityCache<Person> cache = OffHeapEntityCache.forPeople(2, 4096, Duration.ofMinutes(1));
+        AtomicInteger loads = new AtomicInteger();
+        Person john = new Person(1L, "John", "Smith", ZonedDateTime.of(1980, 11, 15, 15, 15, 0, 0, ZoneId.of("+0")));
+        john.setHomeAddressLoader(10L, () -> {
+            loads.incrementAndGet();
+            return Optional.of(createAddress(10L));
+        });
+        john.setSecondaryAddressLoader(null, () -> {
+            loads.incrementAndGet();
+            return Optional.empty();
+        });
+        john.setSpouseLoader(2L, () -> {
+            loads.incrementAndGet();
+            return Optional.empty();
+        });
+        cache.put(1L, john);
+
+        Person cachedJohn = cache.get(1L);
+
+        assertThat(loads).hasValue(0);
+        assertThat(cachedJohn.isUnresolved(PersonAssociation.HOME_ADDRESS)).isTrue();
+        assertThat(cachedJohn.getReference(PersonAssociation.HOME_ADDRESS)).isEqualTo(10L);
+        assertThat(cachedJohn.isReferenced(PersonAssociation.SECONDARY_ADDRESS)).isTrue();
+        assertThat(cachedJohn.getReference(PersonAssociation.SECONDARY_ADDRESS)).isNull();
+        assertThat(cachedJohn.getReference(PersonAssociation.SPOUSE)).isEqualTo(2L);
+        assertThat(cachedJohn.isReferenced(PersonAssociation.CHILDREN)).isFalse();
+    }
+
+    private static Person createPerson(long id) {
+        Person person = new Person(id, "John", "Smith", ZonedDateTime.of(1980, 11, 15, 15, 15, 0, 0, ZoneId.of("+0")), new BigDecimal("73000.50"));
+        person.setEmail("john@smith.com");
+        person.setHomeAddress(createAddress(id));
+        person.setSpouse(new Person(id + 1000, "Jane", "Smith", ZonedDateTime.of(1982, 1, 1, 0, 0, 0, 0, ZoneId.of("+0"))));
+        person.addChild(new Person(id + 2000, "Johnny", "Smith", ZonedDateTime.of(2010, 1, 1, 0, 0, 0, 0, ZoneId.of("+0"))));
+        return person;
+    }
+
+    private static Address createAddress(long id) {
+        return new Address(id, "123 Main St", null, "Anytown", "TX", "12345", "United States", "Foulton County", Region.WEST);
+    }
+}
@@ -0,0 +1,75 @@
+package com.lingarogroup.peopledb.io;
+
+import com.lingarogroup.peopledb.exception.UnableToImportException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class MappedCsvReaderTests {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void canReadFieldsFromBytes() throws IOException {
+        Path file = Files.writeString(tempDir.resolve("people.csv"),
+                "Name,Date,Time,Salary\r\nJohn,11/5/1980,12:15:01 AM,73000.50\r\n\r\nJane,2/29/2000,03:15:01 PM,-12\r\n");
+        try (MappedCsvReader reader = new MappedCsvReader(file)) {
+            assertThat(reader.getHeader()).containsExactly("Name", "Date", "Time", "Salary");
+            CsvCursor rows = reader.split(1).get(0);
+
+            assertThat(rows.next()).isTrue();
+            assertThat(rows.getString(0)).isEqualTo("John");
+            assertThat(rows.getDate(1)).isEqualTo(LocalDate.of(1980, 11, 5));
+            assertThat(rows.getTime(2)).isEqualTo(LocalTime.of(0, 15, 1));
+            assertThat(rows.getDecimal(3)).isEqualTo(new BigDecimal("73000.50"));
+            assertThat(rows.next()).isTrue();
+            assertThat(rows.getDate(1)).isEqualTo(LocalDate.of(2000, 2, 29));
+            assertThat(rows.getTime(2)).isEqualTo(LocalTime.of(15, 15, 1));
+            assertThat(rows.getDecimal(3)).isEqualTo(new BigDecimal("-12"));
+            assertThat(rows.next()).isFalse();
+        }
+    }
+
+    @Test
+    public void splitsAtLineBoundaries() throws IOException {
+        List<String> lines = new ArrayList<>(List.of("Id,Name"));
+        IntStream.range(0, 1_000).mapToObj(i -> i + ",Name" + i).forEach(lines::add);
+        Path file = Files.write(tempDir.resolve("people.csv"), lines);
+        try (MappedCsvReader reader = new MappedCsvReader(file)) {
+            List<Long> ids = new ArrayList<>();
+            for (CsvCursor rows : reader.split(7)) {
+                while (rows.next()) {
+                    assertThat(rows.getString(1)).isEqualTo("Name" + rows.getLong(0));
+                    ids.add(rows.getLong(0));
+                }
+            }
+
+            assertThat(ids).containsExactlyElementsOf(IntStream.range(0, 1_000).mapToObj(Long::valueOf).toList());
+        }
+    }
+
+    @Test
+    public void rejectsMalformedFields() throws IOException {
+        Path file = Files.writeString(tempDir.resolve("people.csv"), "Date,Time\n13/45/1980,25:00:00 PM\n");
+        try (MappedCsvReader reader = new MappedCsvReader(file)) {
+            CsvCursor rows = reader.split(1).get(0);
+            rows.next();
+
+            assertThatThrownBy(() -> rows.getDate(0)).isInstanceOf(UnableToImportException.class).hasMessageContaining("13/45/1980");
+            assertThatThrownBy(() -> rows.getTime(1)).isInstanceOf(UnableToImportException.class).hasMessageContaining("25:00:00 PM");
+            assertThatThrownBy(() -> rows.getString(2)).isInstanceOf(UnableToImportException.class);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.lingarogroup.peopledb.io;
+
+import com.lingarogroup.peopledb.exception.UnableToImportException;
+import com.lingarogroup.peopledb.exception.UnableToInitializeRepositoryException;
+import com.lingarogroup.peopledb.model.Person;
+import com.lingarogroup.peopledb.repository.PeopleRepository;
+import com.lingarogroup.peopledb.repository.SchemaManager;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+public class PeopleImporterTests {
+    private static final String HEADER = "Emp ID,Name Prefix,First Name,Middle Initial,Last Name,Gender,E Mail,Date of Birth,Time of Birth,Salary";
+
+    @TempDir
+    Path tempDir;
+
+    private Connection keepAlive;
+    private PeopleRepository repo;
+
+    @BeforeEach
+    void setUp() throws SQLException, UnableToInitializeRepositoryException {
+        // a private in-memory database, kept alive by one open connection, so the test doesn't touch real data
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:import" + System.nanoTime());
+        keepAlive = dataSource.getConnection();
+        new SchemaManager(keepAlive).migrate();
+        repo = new PeopleRepository(dataSource, 4);
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        if (repo != null) repo.close();
+        if (keepAlive != null) keepAlive.close();
+    }
+
+    @Test
+    public void canImportPeopleFromCsv() throws IOException {
+        Path file = writeCsv(IntStream.range(0, 2_500).mapToObj(PeopleImporterTests::line).toList());
+        PeopleImporter importer = new PeopleImporter(repo);
+        importer.setParserThreads(3);
+        importer.setChunkSize(100);
+        importer.setQueueCapacity(2);
+        importer.setCommitInterval(1_000);
+        List<ImportProgress> progress = new ArrayList<>();
+        importer.setProgressListener(progress::add);
+
+        ImportProgress result = importer.importCsv(file);
+
+        assertThat(result.rowsImported()).isEqualTo(2_500);
+        assertThat(repo.count()).isEqualTo(2_500);
+        assertThat(progress).extracting(ImportProgress::rowsImported).contains(1_000L, 2_000L, 2_500L);
+        Person person = repo.findAll().stream().filter(p -> p.getFirstName().equals("John7")).findFirst().get();
+        assertThat(person.getLastName()).isEqualTo("Smith");
+        assertThat(person.getEmail()).isEqualTo("john7@smith.com");
+        assertThat(person.getSalary()).isEqualByComparingTo(new BigDecimal("73000.50"));
+        assertThat(person.getDateOfBirth()).isEqualTo(ZonedDateTime.of(1980, 11, 5, 15, 15, 1, 0, ZoneId.of("+0")));
+    }
+
+    @Test
+    public void stopsOnMalformedLine() throws IOException {
+        List<String> lines = IntStream.range(0, 500).mapToObj(PeopleImporterTests::line).collect(Collectors.toCollection(ArrayList::new));
+        lines.set(250, "1,Mr.,John,A,Smith,M,john@smith.com,not a date,03:15:01 PM,73000.50");
+        PeopleImporter importer = new PeopleImporter(repo);
+        importer.setChunkSize(10);
+        importer.setCommitInterval(100_000);
+
+        assertThatThrownBy(() -> importer.importCsv(writeCsv(lines)))
+                .isInstanceOf(UnableToImportException.class)
+                .hasMessageContaining("not a date");
+        assertThat(repo.count()).isZero();
+    }
+
+    @Test
+    public void stopsParsersWhenMalformedLineIsBehindFullQueue() throws IOException {
+        List<String> lines = IntStream.range(0, 2_000).mapToObj(PeopleImporterTests::line).collect(Collectors.toCollection(ArrayList::new));
+        // the malformed line is in the second split, while the parser of the first split keeps the queue full
+        lines.set(1_200, "1,Mr.,John,A,Smith,M,john@smith.com,not a date,03:15:01 PM,73000.50");
+        Path file = writeCsv(lines);
+        PeopleImporter importer = new PeopleImporter(repo);
+        importer.setParserThreads(2);
+        importer.setChunkSize(1);
+        importer.setQueueCapacity(1);
+
+        assertTimeoutPreemptively(Duration.ofSeconds(30), () -> assertThatThrownBy(() -> importer.importCsv(file))
+                .isInstanceOf(UnableToImportException.class)
+                .hasMessageContaining("not a date"));
+        assertThat(repo.count()).isZero();
+    }
+
+    private static String line(int i) {
+        return i + ",Mr.,John" + i + ",A,Smith,M,john" + i + "@smith.com,11/5/1980,03:15:01 PM,73000.50";
+    }
+
+    private Path writeCsv(List<String> lines) throws IOException {
+        List<String> content = new ArrayList<>();
+        content.add(HEADER);
+        content.addAll(lines);
+        return Files.write(tempDir.resolve("people.csv"), content);
+    }
+}
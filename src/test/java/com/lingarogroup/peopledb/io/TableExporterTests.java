@@ -0,0 +1,109 @@
+package com.lingarogroup.peopledb.io;
+
+import com.lingarogroup.peopledb.exception.UnableToInitializeRepositoryException;
+import com.lingarogroup.peopledb.model.Person;
+import com.lingarogroup.peopledb.repository.PeopleRepository;
+import com.lingarogroup.peopledb.repository.SchemaManager;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TableExporterTests {
+    @TempDir
+    Path tempDir;
+
+    private JdbcDataSource dataSource;
+    private Connection keepAlive;
+    private PeopleRepository repo;
+    private Person john;
+
+    @BeforeEach
+    void setUp() throws SQLException, UnableToInitializeRepositoryException {
+        // a private in-memory database, kept alive by one open connection, so the test doesn't touch real data
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:export" + System.nanoTime());
+        keepAlive = dataSource.getConnection();
+        new SchemaManager(keepAlive).migrate();
+        repo = new PeopleRepository(dataSource, 2);
+        john = new Person("John", "Smith, Jr.", ZonedDateTime.of(1980, 11, 5, 15, 15, 1, 0, ZoneId.of("+0")));
+        john.setSalary(new BigDecimal("73000.50"));
+        john = repo.save(john);
+        repo.save(new Person("Jane", "Doe", ZonedDateTime.of(1985, 5, 20, 10, 30, 0, 0, ZoneId.of("+0"))));
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        if (repo != null) repo.close();
+        if (keepAlive != null) keepAlive.close();
+    }
+
+    @Test
+    public void canExportPeopleToCsv() throws IOException {
+        Path file = tempDir.resolve("people.csv");
+
+        long rows = new TableExporter(dataSource).export(ExportTable.PEOPLE, file, ExportFormat.CSV);
+
+        assertThat(rows).isEqualTo(2);
+        assertThat(Files.readAllLines(file)).hasSize(3).startsWith(
+                "ID,FIRST_NAME,LAST_NAME,DOB,SALARY,EMAIL,HOME_ADDRESS,SECONDARY_ADDRESS,SPOUSE,PARENT_ID",
+                john.getId() + ",John,\"Smith, Jr.\",1980-11-05T15:15:01,73000.50,,,,,");
+    }
+
+    @Test
+    public void canExportPeopleToCompressedBinary() throws IOException {
+        Path file = tempDir.resolve("people.bin.gz");
+        TableExporter exporter = new TableExporter(dataSource);
+        exporter.setCompressed(true);
+        exporter.setBufferSize(16);
+
+        long rows = exporter.export(ExportTable.PEOPLE, file, ExportFormat.BINARY);
+
+        assertThat(rows).isEqualTo(2);
+        try (DataInputStream in = new DataInputStream(new GZIPInputStream(Files.newInputStream(file)))) {
+            assertThat(in.readNBytes(4)).isEqualTo(TableExporter.BINARY_MAGIC);
+            assertThat(in.readInt()).isEqualTo(TableExporter.BINARY_FORMAT_VERSION);
+            assertThat(in.readShort()).isEqualTo((short) 10);
+            for (int i = 0; i < 10; i++) {
+                int type = in.readInt();
+                String name = new String(in.readNBytes(in.readShort()));
+                if (i == 0) {
+                    assertThat(name).isEqualTo("ID");
+                    assertThat(type).isEqualTo(Types.BIGINT);
+                }
+            }
+            int length = in.readInt();
+            assertThat(in.readByte()).isEqualTo((byte) 1);
+            assertThat(in.readLong()).isEqualTo(john.getId());
+            assertThat(in.readByte()).isEqualTo((byte) 1);
+            assertThat(new String(in.readNBytes(in.readInt()))).isEqualTo("John");
+            assertThat(in.readByte()).isEqualTo((byte) 1);
+            assertThat(new String(in.readNBytes(in.readInt()))).isEqualTo("Smith, Jr.");
+            assertThat(in.readByte()).isEqualTo((byte) 1);
+            assertThat(in.readLong()).isEqualTo(LocalDateTime.of(1980, 11, 5, 15, 15, 1).toEpochSecond(ZoneOffset.UTC));
+            assertThat(in.readInt()).isZero();
+            // the rest of the first row, then the second row
+            in.skipNBytes(length - (1 + 8) - (1 + 4 + 4) - (1 + 4 + 10) - (1 + 8 + 4));
+            int secondLength = in.readInt();
+            in.skipNBytes(secondLength);
+            assertThat(in.read()).isEqualTo(-1);
+        }
+    }
+}
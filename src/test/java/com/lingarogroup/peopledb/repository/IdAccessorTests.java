@@ -0,0 +1,62 @@
+package com.lingarogroup.peopledb.repository;
+
+import com.lingarogroup.peopledb.annotation.Id;
+import com.lingarogroup.peopledb.exception.NoIdFoundException;
+import com.lingarogroup.peopledb.model.Person;
+import org.junit.jupiter.api.Test;
+
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class IdAccessorTests {
+
+    @Test
+    public void canGetAndSetId() {
+        Person person = new Person("John", "Smith", ZonedDateTime.of(1980, 11, 15, 15, 15, 0, 0, ZoneId.of("-6")));
+        IdAccessor accessor = IdAccessor.forClass(Person.class);
+        assertThat(accessor.get(person)).isNull();
+
+        accessor.set(person, 42L);
+
+        assertThat(accessor.get(person)).isEqualTo(42L);
+        assertThat(person.getId()).isEqualTo(42L);
+        assertThat(IdAccessor.forClass(Person.class)).isSameAs(accessor);
+    }
+
+    @Test
+    public void canGetAndSetInheritedPrimitiveId() {
+        SubEntity entity = new SubEntity();
+        IdAccessor accessor = IdAccessor.forClass(SubEntity.class);
+
+        accessor.set(entity, 7L);
+
+        assertThat(((PrimitiveIdEntity) entity).id).isEqualTo(7L);
+        assertThat(accessor.get(entity)).isEqualTo(7L);
+    }
+
+    @Test
+    public void failsToGetIdOfEntityWithoutIdField() {
+        NoIdEntity entity = new NoIdEntity();
+        IdAccessor accessor = IdAccessor.forClass(NoIdEntity.class);
+
+        assertThatThrownBy(() -> accessor.get(entity)).isInstanceOf(NoIdFoundException.class);
+        // setting is skipped for entities without an ID field
+        accessor.set(entity, 1L);
+        assertThat(entity.name).isEqualTo("no id");
+    }
+
+    static class PrimitiveIdEntity {
+        @Id
+        private long id;
+    }
+
+    static class SubEntity extends PrimitiveIdEntity {
+    }
+
+    static class NoIdEntity {
+        private String name = "no id";
+    }
+}
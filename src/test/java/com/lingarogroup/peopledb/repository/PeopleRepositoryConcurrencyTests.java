@@ -0,0 +1,317 @@
+package com.lingarogroup.peopledb.repository;
+
+import com.lingarogroup.peopledb.cache.LruEntityCache;
+import com.lingarogroup.peopledb.cache.OffHeapEntityCache;
+import com.lingarogroup.peopledb.exception.UnableToInitializeRepositoryException;
+import com.lingarogroup.peopledb.model.Address;
+import com.lingarogroup.peopledb.model.Person;
+import com.lingarogroup.peopledb.model.PersonAssociation;
+import com.lingarogroup.peopledb.model.Region;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class PeopleRepositoryConcurrencyTests {
+    private static final int THREADS = 32;
+    private static final int PEOPLE_PER_THREAD = 50;
+
+    private JdbcDataSource dataSource;
+    private Connection keepAlive;
+    private PeopleRepository repo;
+
+    @BeforeEach
+    void setUp() throws SQLException, UnableToInitializeRepositoryException {
+        // a private in-memory database, kept alive by one open connection, so the test doesn't touch real data
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:concurrency" + System.nanoTime());
+        keepAlive = dataSource.getConnection();
+        new SchemaManager(keepAlive).migrate();
+        repo = new PeopleRepository(dataSource, 8);
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        if (repo != null) repo.close();
+        if (keepAlive != null) keepAlive.close();
+    }
+
+    @Test
+    public void canSaveAndFindPeopleFromManyThreads() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> results = new ArrayList<>();
+        for (int thread = 0; thread < THREADS; thread++) {
+            int threadNumber = thread;
+            results.add(executor.submit(() -> {
+                for (int i = 0; i < PEOPLE_PER_THREAD; i++) {
+                    Person person = new Person("John" + threadNumber, "Smith" + i, ZonedDateTime.of(1980, 11, 15, 15, 15, 0, 0, ZoneId.of("-6")));
+                    person.setHomeAddress(new Address("123 Main St", "Anytown", "TX", "12345", "United States", "Foulton County", Region.WEST));
+                    Person savedPerson = repo.save(person);
+                    Person foundPerson = repo.findById(savedPerson.getId()).get();
+                    assertThat(foundPerson).isEqualTo(savedPerson);
+                    assertThat(foundPerson.getHomeAddress()).isEqualTo(savedPerson.getHomeAddress());
+                }
+            }));
+        }
+        for (Future<?> result : results) {
+            result.get();
+        }
+        executor.shutdown();
+        assertThat(repo.count()).isEqualTo(THREADS * PEOPLE_PER_THREAD);
+    }
+
+    @Test
+    public void canRollBackTransaction() {
+        try {
+            repo.inTransaction(() -> {
+                repo.save(new Person("John", "Smith", ZonedDateTime.of(1980, 11, 15, 15, 15, 0, 0, ZoneId.of("-6"))));
+                throw new IllegalStateException("rollback");
+            });
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        Person jane = repo.inTransaction(() -> repo.save(new Person("Jane", "Doe", ZonedDateTime.of(1985, 5, 20, 10, 30, 0, 0, ZoneId.of("-6")))));
+        assertThat(repo.count()).isEqualTo(1);
+        assertThat(repo.findById(jane.getId())).isNotEmpty();
+    }
+
+    @Test
+    public void canFindAllByIdsAsync() throws Exception {
+        try (AsyncPeopleRepository asyncRepo = new AsyncPeopleRepository(repo, 8)) {
+            List<Person> savedPeople = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                savedPeople.add(asyncRepo.saveAsync(new Person("John", "Smith" + i, ZonedDateTime.of(1980, 11, 15, 15, 15, 0, 0, ZoneId.of("-6")))).get());
+            }
+            List<Long> ids = new ArrayList<>(savedPeople.stream().map(Person::getId).toList());
+            Collections.reverse(ids);
+            ids.add(1, -1L);
+
+            List<Person> foundPeople = asyncRepo.findAllByIdsAsync(ids).get();
+
+            assertThat(foundPeople).hasSize(200);
+            assertThat(foundPeople.get(0)).isEqualTo(savedPeople.get(199));
+            assertThat(foundPeople.get(199)).isEqualTo(savedPeople.get(0));
+            assertThat(asyncRepo.countAsync().get()).isEqualTo(200);
+        }
+    }
+
+    @Test
+    public void asyncOperationsOccupyAtMostMaxConcurrentTasks() throws Exception {
+        ThreadPoolExecutor executor = (ThreadPoolExecutor) Executors.newFixedThreadPool(1);
+        CountDownLatch blocked = new CountDownLatch(1);
+        // the only thread of the executor is blocked, so the dispatched tasks stay in its queue
+        executor.execute(() -> {
+            try {
+                blocked.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        try (AsyncPeopleRepository asyncRepo = new AsyncPeopleRepository(repo, 4, executor)) {
+            List<CompletableFuture<Long>> counts = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                counts.add(asyncRepo.countAsync());
+            }
+            assertThat(executor.getQueue()).hasSize(4);
+
+            blocked.countDown();
+            for (CompletableFuture<Long> count : counts) {
+                assertThat(count.get()).isZero();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertThat(executor.getCompletedTaskCount()).isLessThanOrEqualTo(5);
+    }
+
+    @Test
+    public void findByIdUsesSharedCacheUntilEntityChanges() {
+        repo.setCache(LruEntityCache.forPeople(100, Duration.ofMinutes(5)));
+        Person parent = repo.save(new Person("John", "Smith", ZonedDateTime.of(1980, 11, 15, 15, 15, 0, 0, ZoneId.of("-6"))));
+
+        Person cachedParent = repo.findById(parent.getId()).get();
+        assertThat(repo.findById(parent.getId()).get()).isNotSameAs(cachedParent).isEqualTo(cachedParent);
+
+        Person child = new Person("Johnny", "Smith", ZonedDateTime.of(2010, 1, 1, 0, 0, 0, 0, ZoneId.of("+0")));
+        child.setParent(parent);
+        repo.save(child);
+        Person reloadedParent = repo.findById(parent.getId()).get();
+        assertThat(reloadedParent).isNotSameAs(cachedParent);
+        assertThat(reloadedParent.getChildren()).contains(child);
+
+        reloadedParent.setFirstName("Jack");
+        repo.update(reloadedParent);
+        assertThat(repo.findById(parent.getId()).get().getFirstName()).isEqualTo("Jack");
+
+        repo.delete(reloadedParent);
+        assertThat(repo.findById(parent.getId())).isEmpty();
+        assertThat(repo.getCacheStats().get().hits()).isEqualTo(1);
+    }
+
+    @Test
+    public void identicalAddressesAreSavedOnce() throws UnableToInitializeRepositoryException {
+        repo.setDeduplicatingAddresses(true);
+        Person john = new Person("John", "Smith", ZonedDateTime.of(1980, 11, 15, 15, 15, 0, 0, ZoneId.of("-6")));
+        john.setHomeAddress(new Address("123 Main St", "Anytown", "TX", "12345", "United States", "Foulton County", Region.WEST));
+        Person jane = new Person("Jane", "Smith", ZonedDateTime.of(1982, 1, 1, 0, 0, 0, 0, ZoneId.of("+0")));
+        jane.setHomeAddress(new Address("123 Main St", "Anytown", "TX", "12345", "United States", "Foulton County", Region.WEST));
+        jane.setSecondaryAddress(john.getHomeAddress().get());
+
+        repo.saveAll(List.of(john, jane));
+
+        Long addressId = john.getHomeAddress().get().getId();
+        assertThat(jane.getHomeAddress().get().getId()).isEqualTo(addressId);
+        assertThat(repo.findById(jane.getId()).get().getSecondaryAddress().get().getId()).isEqualTo(addressId);
+        try (AddressRepository addressRepository = new AddressRepository(dataSource)) {
+            assertThat(addressRepository.count()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    public void savesIdenticalAddressOnceAndAgainAfterRollback() throws SQLException, UnableToInitializeRepositoryException {
+        try (Connection connection = dataSource.getConnection();
+             PeopleRepository manualCommitRepo = new PeopleRepository(connection);
+             AddressRepository addressRepository = new AddressRepository(connection)) {
+            connection.setAutoCommit(false);
+            manualCommitRepo.setDeduplicatingAddresses(true);
+            Person john = new Person("John", "Smith", ZonedDateTime.of(1980, 11, 15, 15, 15, 0, 0, ZoneId.of("-6")));
+            john.setHomeAddress(new Address("123 Main St", "APT. 1A", "Anytown", "TX", "12345", "United States", "Foulton County", Region.WEST));
+            Person jane = new Person("Jane", "Smith", ZonedDateTime.of(1985, 5, 20, 10, 30, 0, 0, ZoneId.of("-6")));
+            jane.setHomeAddress(new Address("123 Main St", "APT. 1A", "Anytown", "TX", "12345", "United States", "Foulton County", Region.WEST));
+            manualCommitRepo.save(john);
+            manualCommitRepo.save(jane);
+            assertThat(jane.getHomeAddress().get().getId()).isEqualTo(john.getHomeAddress().get().getId());
+            assertThat(addressRepository.count()).isEqualTo(1);
+
+            connection.rollback();
+            Person tom = new Person("Tom", "Smith", ZonedDateTime.of(1990, 1, 1, 0, 0, 0, 0, ZoneId.of("-6")));
+            tom.setHomeAddress(new Address("123 Main St", "APT. 1A", "Anytown", "TX", "12345", "United States", "Foulton County", Region.WEST));
+            manualCommitRepo.save(tom);
+            assertThat(addressRepository.count()).isEqualTo(1);
+            assertThat(addressRepository.existsById(tom.getHomeAddress().get().getId())).isTrue();
+        }
+    }
+
+    @Test
+    public void updatedAddressIsMatchedByItsNewContent() throws SQLException, UnableToInitializeRepositoryException {
+        try (AddressRepository addressRepository = new AddressRepository(dataSource)) {
+            addressRepository.setDeduplicating(true);
+            Address address = addressRepository.save(new Address("123 Main St", "Anytown", "TX", "12345", "United States", "Foulton County", Region.WEST));
+            address.setStreetAddress("456 Oak St");
+            addressRepository.update(address);
+
+            Address oldContent = addressRepository.save(new Address("123 Main St", "Anytown", "TX", "12345", "United States", "Foulton County", Region.WEST));
+            Address newContent = addressRepository.save(new Address("456 Oak St", "Anytown", "TX", "12345", "United States", "Foulton County", Region.WEST));
+            assertThat(oldContent.getId()).isNotEqualTo(address.getId());
+            assertThat(newContent.getId()).isEqualTo(address.getId());
+
+            // without the deduplication, an update clears the hash, so the changed row is no longer matched
+            addressRepository.setDeduplicating(false);
+            address.setStreetAddress("789 Elm St");
+            addressRepository.update(address);
+            try (PreparedStatement ps = keepAlive.prepareStatement("SELECT CONTENT_HASH FROM ADDRESSES WHERE ID = ?")) {
+                ps.setLong(1, address.getId());
+                try (ResultSet rs = ps.executeQuery()) {
+                    assertThat(rs.next()).isTrue();
+                    assertThat(rs.getString(1)).isNull();
+                }
+            }
+        }
+    }
+
+    @Test
+    public void offHeapCacheHandlesPeopleWhoAreEachOthersSpouse() throws SQLException {
+        repo.setCache(OffHeapEntityCache.forPeople(4, 64 * 1024, Duration.ofMinutes(5)));
+        Person john = repo.save(new Person("John", "Smith", ZonedDateTime.of(1980, 11, 15, 15, 15, 0, 0, ZoneId.of("-6"))));
+        Person jane = new Person("Jane", "Smith", ZonedDateTime.of(1982, 1, 1, 0, 0, 0, 0, ZoneId.of("+0")));
+        jane.setSpouse(john);
+        repo.save(jane);
+        try (PreparedStatement ps = keepAlive.prepareStatement("UPDATE PEOPLE SET SPOUSE = ? WHERE ID = ?")) {
+            ps.setLong(1, jane.getId());
+            ps.setLong(2, john.getId());
+            ps.executeUpdate();
+        }
+
+        // caching a person must not load its spouse, which would cache the spouse, load its spouse, and so on
+        Person foundJohn = repo.findById(john.getId()).get();
+        Person foundJane = foundJohn.getSpouse().get();
+        assertThat(foundJane.getSpouse().get().getId()).isEqualTo(john.getId());
+
+        Person cachedJohn = repo.findById(john.getId()).get();
+        assertThat(cachedJohn).isNotSameAs(foundJohn);
+        assertThat(cachedJohn.getSpouse().get().getId()).isEqualTo(jane.getId());
+        assertThat(cachedJohn.getSpouse().get().getSpouse().get().getId()).isEqualTo(john.getId());
+        assertThat(cachedJohn.getChildren()).isEmpty();
+        assertThat(repo.getCacheStats().get().hits()).isGreaterThanOrEqualTo(2);
+    }
+
+    @Test
+    public void rollsBackTransactionWhenWorkThrowsError() {
+        assertThatThrownBy(() -> repo.inTransaction(() -> {
+            repo.save(new Person("John", "Smith", ZonedDateTime.of(1980, 11, 15, 15, 15, 0, 0, ZoneId.of("-6"))));
+            throw new AssertionError("rollback");
+        })).isInstanceOf(AssertionError.class);
+
+        assertThat(repo.count()).isZero();
+    }
+
+    @Test
+    public void changingFoundPersonLeavesCachedPersonUnchanged() {
+        repo.setCache(LruEntityCache.forPeople(100, Duration.ofMinutes(5)));
+        Person john = new Person("John", "Smith", ZonedDateTime.of(1980, 11, 15, 15, 15, 0, 0, ZoneId.of("-6")));
+        john.setSalary(new BigDecimal("73000.50"));
+        repo.save(john);
+
+        Person foundJohn = repo.findById(john.getId()).get();
+        foundJohn.setSalary(new BigDecimal("1.00"));
+        foundJohn.setLastName("Changed");
+
+        Person cachedJohn = repo.findById(john.getId()).get();
+        assertThat(cachedJohn).isNotSameAs(foundJohn);
+        assertThat(cachedJohn.getSalary()).isEqualByComparingTo("73000.50");
+        assertThat(cachedJohn.getLastName()).isEqualTo("Smith");
+        assertThat(repo.getCacheStats().get().hits()).isEqualTo(1);
+    }
+
+    @Test
+    public void cachedPersonLoadsSpouseByCachedForeignKey() throws SQLException {
+        repo.setCache(OffHeapEntityCache.forPeople(4, 64 * 1024, Duration.ofMinutes(5)));
+        Person jane = repo.save(new Person("Jane", "Smith", ZonedDateTime.of(1982, 1, 1, 0, 0, 0, 0, ZoneId.of("+0"))));
+        Person john = new Person("John", "Smith", ZonedDateTime.of(1980, 11, 15, 15, 15, 0, 0, ZoneId.of("-6")));
+        john.setSpouse(jane);
+        repo.save(john);
+        repo.findById(john.getId());
+
+        // the cached person keeps the foreign key it was read with, so the changed row isn't read again
+        try (PreparedStatement ps = keepAlive.prepareStatement("UPDATE PEOPLE SET SPOUSE = NULL WHERE ID = ?")) {
+            ps.setLong(1, john.getId());
+            ps.executeUpdate();
+        }
+        Person cachedJohn = repo.findById(john.getId()).get();
+
+        assertThat(cachedJohn.isLoaded(PersonAssociation.SPOUSE)).isFalse();
+        assertThat(cachedJohn.getSpouse()).contains(jane);
+        assertThat(repo.getCacheStats().get().hits()).isEqualTo(1);
+    }
+}
@@ -1,8 +1,15 @@
 package com.lingarogroup.peopledb.repository;
 
+import com.lingarogroup.peopledb.annotation.SQL;
 import com.lingarogroup.peopledb.exception.UnableToInitializeRepositoryException;
 import com.lingarogroup.peopledb.model.Address;
+import com.lingarogroup.peopledb.model.CrudOperation;
+import com.lingarogroup.peopledb.model.FetchMode;
+import com.lingarogroup.peopledb.model.FetchType;
+import com.lingarogroup.peopledb.model.Page;
 import com.lingarogroup.peopledb.model.Person;
+import com.lingarogroup.peopledb.model.PersonAssociation;
+import com.lingarogroup.peopledb.model.PersonSummary;
 import com.lingarogroup.peopledb.model.Region;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -14,8 +21,11 @@ import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 public class PeopleRepositoryTests {
 
@@ -56,6 +66,7 @@ public class PeopleRepositoryTests {
 
     @AfterEach
     void tearDown() throws SQLException {
+        if (repo != null) repo.close();
         if (connection != null) connection.close();
     }
 
@@ -253,7 +264,379 @@ public class PeopleRepositoryTests {
         assertThat(updatedPerson.getSalary()).isEqualByComparingTo("73000.44");
     }
 
+    @Test
+    public void canSaveAllPeople() {
+        Person john = new Person("John", "Smith", ZonedDateTime.of(1980, 11, 15, 15, 15, 0, 0, ZoneId.of("-6")));
+        Person jane = new Person("Jane", "Doe", ZonedDateTime.of(1985, 5, 20, 10, 30, 0, 0, ZoneId.of("-6")));
+        Person tom = new Person("Tom", "Brown", ZonedDateTime.of(1990, 1, 1, 0, 0, 0, 0, ZoneId.of("-6")));
+        repo.setBatchSize(2);
+        List<Person> savedPeople = repo.saveAll(List.of(john, jane, tom));
+        assertThat(savedPeople).containsExactly(john, jane, tom);
+        savedPeople.forEach(person -> assertThat(person.getId()).isGreaterThan(0));
+        assertThat(repo.findById(jane.getId()).get()).isEqualTo(jane);
+    }
+
+    @Test
+    public void canSaveAllPeopleWithChildren() {
+        Person john = new Person("John", "Smith", ZonedDateTime.of(1980, 11, 15, 15, 15, 0, 0, ZoneId.of("-6")));
+        john.addChild(new Person("Tom", "Smith", ZonedDateTime.of(2010, 1, 1, 0, 0, 0, 0, ZoneId.of("-6"))));
+        john.addChild(new Person("Ann", "Smith", ZonedDateTime.of(2015, 6, 15, 12, 0, 0, 0, ZoneId.of("-6"))));
+        Person jane = new Person("Jane", "Doe", ZonedDateTime.of(1985, 5, 20, 10, 30, 0, 0, ZoneId.of("-6")));
+        jane.addChild(new Person("Mark", "Doe", ZonedDateTime.of(2012, 3, 3, 0, 0, 0, 0, ZoneId.of("-6"))));
+        repo.saveAll(List.of(john, jane));
+        Person foundJohn = repo.findById(john.getId()).get();
+        assertThat(foundJohn.getChildren()).contains(john.getChildren().toArray(new Person[]{}));
+        Person foundJane = repo.findById(jane.getId()).get();
+        assertThat(foundJane.getChildren()).contains(jane.getChildren().toArray(new Person[]{}));
+    }
 
+    @Test
+    public void canSaveAllAddresses() throws UnableToInitializeRepositoryException {
+        AddressRepository addressRepository = new AddressRepository(connection);
+        Address home = new Address("123 Main St", "APT. 1A", "Anytown", "TX", "12345", "United States", "Foulton County", Region.WEST);
+        Address secondary = new Address("456 Elm St", "APT. 2B", "Othertown", "TX", "54321", "United States", "Foulton County", Region.WEST);
+        addressRepository.saveAll(List.of(home, secondary));
+        assertThat(home.getId()).isGreaterThan(0);
+        assertThat(secondary.getId()).isGreaterThan(home.getId());
+    }
+
+    @Test
+    public void saveAllAssignsIdsAndSavesEveryRow() {
+        long countBefore = repo.count();
+        repo.setBatchSize(100);
+        List<Person> savedPeople = repo.saveAll(createPeople(250));
+        assertThat(savedPeople).hasSize(250);
+        assertThat(savedPeople).extracting(Person::getId).doesNotContainNull().doesNotHaveDuplicates().isSorted();
+        assertThat(repo.count()).isEqualTo(countBefore + 250);
+    }
+
+    @Test
+    public void saveAllSavesSharedAddressOnce() throws UnableToInitializeRepositoryException {
+        AddressRepository addressRepository = new AddressRepository(connection);
+        long addressesBefore = addressRepository.count();
+        Address home = new Address("123 Main St", "APT. 1A", "Anytown", "TX", "12345", "United States", "Foulton County", Region.WEST);
+        Address secondary = new Address("456 Elm St", "APT. 2B", "Othertown", "TX", "54321", "United States", "Foulton County", Region.WEST);
+        Person john = new Person("John", "Smith", ZonedDateTime.of(1980, 11, 15, 15, 15, 0, 0, ZoneId.of("-6")));
+        john.setHomeAddress(home);
+        Person jane = new Person("Jane", "Smith", ZonedDateTime.of(1985, 5, 20, 10, 30, 0, 0, ZoneId.of("-6")));
+        jane.setHomeAddress(home);
+        jane.setSecondaryAddress(secondary);
+        repo.saveAll(List.of(john, jane));
+        assertThat(addressRepository.count()).isEqualTo(addressesBefore + 2);
+        assertThat(home.getId()).isGreaterThan(0);
+        assertThat(secondary.getId()).isGreaterThan(0);
+        Person foundJane = repo.findById(jane.getId()).get();
+        assertThat(foundJane.getHomeAddress().get().getId()).isEqualTo(home.getId());
+        assertThat(foundJane.getSecondaryAddress().get().getId()).isEqualTo(secondary.getId());
+    }
+
+    @Test
+    public void canStreamAllPeople() {
+        Person john = new Person("John", "Smith", ZonedDateTime.of(1980, 11, 15, 15, 15, 0, 0, ZoneId.of("-6")));
+        john.addChild(new Person("Tom", "Smith", ZonedDateTime.of(2010, 1, 1, 0, 0, 0, 0, ZoneId.of("-6"))));
+        john.addChild(new Person("Ann", "Smith", ZonedDateTime.of(2015, 6, 15, 12, 0, 0, 0, ZoneId.of("-6"))));
+        Person savedJohn = repo.save(john);
+        Person savedJane = repo.save(new Person("Jane", "Doe", ZonedDateTime.of(1985, 5, 20, 10, 30, 0, 0, ZoneId.of("-6"))));
+        try (Stream<Person> people = repo.streamAll(10)) {
+            List<Person> found = people
+                    .filter(person -> person.getId().equals(savedJohn.getId()) || person.getId().equals(savedJane.getId()))
+                    .toList();
+            assertThat(found).containsExactly(savedJohn, savedJane);
+            assertThat(found.get(0).getChildren()).containsExactlyInAnyOrder(savedJohn.getChildren().toArray(new Person[]{}));
+        }
+    }
+
+    @Test
+    public void canFindPagesOfPeople() {
+        Person john = new Person("John", "Smith", ZonedDateTime.of(1980, 11, 15, 15, 15, 0, 0, ZoneId.of("-6")));
+        john.addChild(new Person("Tom", "Smith", ZonedDateTime.of(2010, 1, 1, 0, 0, 0, 0, ZoneId.of("-6"))));
+        john.addChild(new Person("Ann", "Smith", ZonedDateTime.of(2015, 6, 15, 12, 0, 0, 0, ZoneId.of("-6"))));
+        Person savedJohn = repo.save(john);
+        Person savedJane = repo.save(new Person("Jane", "Doe", ZonedDateTime.of(1985, 5, 20, 10, 30, 0, 0, ZoneId.of("-6"))));
+
+        Page<Person> firstPage = repo.findPage(savedJohn.getId() - 1, 1);
+        assertThat(firstPage.content()).containsExactly(savedJohn);
+        assertThat(firstPage.content().get(0).getChildren()).hasSize(2);
+        assertThat(firstPage.hasNext()).isTrue();
+
+        Page<Person> secondPage = repo.findPage(firstPage.nextAfterId(), 2);
+        assertThat(secondPage.content()).hasSize(2);
+        assertThat(secondPage.content().get(0).getId()).isGreaterThan(savedJohn.getId());
+        assertThat(repo.findPage(savedJane.getId(), 1).hasNext()).isFalse();
+    }
+
+    @Test
+    public void repositoryWithoutSqlFailsFast() {
+        assertThatThrownBy(() -> new CRUDRepository<Address>(connection) {
+            @Override
+            @SQL(value = AddressRepository.SAVE_ADDRESS_SQL, operationType = CrudOperation.SAVE)
+            void mapForSave(Address entity, PreparedStatement ps) {}
+
+            @Override
+            void mapForUpdate(Address entity, PreparedStatement ps) {}
+
+            @Override
+            Address extractEntityFromResultSet(ResultSet rs) {
+                return null;
+            }
+        })
+                .isInstanceOf(UnableToInitializeRepositoryException.class)
+                .hasMessageContaining("FIND_BY_ID");
+    }
+
+    @Test
+    public void reusesCachedStatementsInSteadyState() {
+        Person john = repo.save(new Person("John", "Smith", ZonedDateTime.of(1980, 11, 15, 15, 15, 0, 0, ZoneId.of("-6"))));
+        repo.findById(john.getId());
+        repo.update(john);
+        repo.count();
+        long missesAfterWarmUp = repo.getStatementCacheMissCount();
+        long hitsAfterWarmUp = repo.getStatementCacheHitCount();
+        for (int i = 0; i < 10; i++) {
+            repo.save(new Person("Jane", "Doe", ZonedDateTime.of(1985, 5, 20, 10, 30, 0, 0, ZoneId.of("-6"))));
+            repo.findById(john.getId());
+            repo.update(john);
+            repo.count();
+        }
+        assertThat(repo.getStatementCacheMissCount()).isEqualTo(missesAfterWarmUp);
+        assertThat(repo.getStatementCacheHitCount()).isEqualTo(hitsAfterWarmUp + 40);
+    }
+
+    @Test
+    public void findByIdReturnsSameInstanceWithinSession() {
+        Person savedPerson = repo.save(new Person("John", "Smith", ZonedDateTime.of(1980, 11, 15, 15, 15, 0, 0, ZoneId.of("-6"))));
+        try (Session session = Session.open()) {
+            Person foundPerson = repo.findById(savedPerson.getId()).get();
+            long missesBefore = repo.getStatementCacheMissCount();
+            long hitsBefore = repo.getStatementCacheHitCount();
+            assertThat(repo.findById(savedPerson.getId()).get()).isSameAs(foundPerson);
+            // no statement was used, so no SQL was executed
+            assertThat(repo.getStatementCacheMissCount() + repo.getStatementCacheHitCount()).isEqualTo(missesBefore + hitsBefore);
+        }
+        assertThat(repo.findById(savedPerson.getId()).get()).isNotSameAs(savedPerson);
+    }
+
+    @Test
+    public void spouseIsSameInstanceWithinSession() {
+        Person jane = repo.save(new Person("Jane", "Doe", ZonedDateTime.of(1985, 5, 20, 10, 30, 0, 0, ZoneId.of("-6"))));
+        Person john = new Person("John", "Smith", ZonedDateTime.of(1980, 11, 15, 15, 15, 0, 0, ZoneId.of("-6")));
+        john.setSpouse(jane);
+        repo.save(john);
+        try (Session session = Session.open()) {
+            Person foundJane = repo.findById(jane.getId()).get();
+            Person foundJohn = repo.findById(john.getId()).get();
+            assertThat(foundJohn.getSpouse().get()).isSameAs(foundJane);
+        }
+    }
+
+    @Test
+    public void loadsAssociationsLazilyByDefault() {
+        Person john = new Person("John", "Smith", ZonedDateTime.of(1980, 11, 15, 15, 15, 0, 0, ZoneId.of("-6")));
+        john.setHomeAddress(new Address("123 Main St", "Anytown", "TX", "12345", "United States", "Foulton County", Region.WEST));
+        john.addChild(new Person("Johnny", "Smith", ZonedDateTime.of(2010, 1, 1, 0, 0, 0, 0, ZoneId.of("+0"))));
+        repo.save(john);
+
+        Person foundJohn = repo.findById(john.getId()).get();
+
+        assertThat(foundJohn.isLoaded(PersonAssociation.HOME_ADDRESS)).isFalse();
+        assertThat(foundJohn.isLoaded(PersonAssociation.CHILDREN)).isFalse();
+        assertThat(foundJohn.getHomeAddress()).isEqualTo(john.getHomeAddress());
+        assertThat(foundJohn.getChildren()).containsExactlyElementsOf(john.getChildren());
+        assertThat(foundJohn.getChildren().iterator().next().getParent()).containsSame(foundJohn);
+        assertThat(foundJohn.isLoaded(PersonAssociation.HOME_ADDRESS)).isTrue();
+        assertThat(foundJohn.isLoaded(PersonAssociation.CHILDREN)).isTrue();
+    }
+
+    @Test
+    public void loadsEagerAssociationsWithPerson() {
+        repo.setFetchType(PersonAssociation.SPOUSE, FetchType.EAGER);
+        repo.setFetchType(PersonAssociation.CHILDREN, FetchType.EAGER);
+        Person jane = repo.save(new Person("Jane", "Doe", ZonedDateTime.of(1985, 5, 20, 10, 30, 0, 0, ZoneId.of("-6"))));
+        Person john = new Person("John", "Smith", ZonedDateTime.of(1980, 11, 15, 15, 15, 0, 0, ZoneId.of("-6")));
+        john.setSpouse(jane);
+        john.addChild(new Person("Johnny", "Smith", ZonedDateTime.of(2010, 1, 1, 0, 0, 0, 0, ZoneId.of("+0"))));
+        repo.save(john);
+
+        Person foundJohn = repo.findById(john.getId()).get();
+
+        assertThat(foundJohn.isLoaded(PersonAssociation.SPOUSE)).isTrue();
+        assertThat(foundJohn.isLoaded(PersonAssociation.CHILDREN)).isTrue();
+        assertThat(foundJohn.isLoaded(PersonAssociation.HOME_ADDRESS)).isFalse();
+        assertThat(foundJohn.getSpouse()).contains(jane);
+        assertThat(foundJohn.getChildren()).containsExactlyElementsOf(john.getChildren());
+    }
+
+    @Test
+    public void canFindAllWithProjection() {
+        // a unique last name picks out the people saved here among the rows already in the database
+        String lastName = "Smith" + System.nanoTime();
+        Person john = new Person("John", lastName, ZonedDateTime.of(1980, 11, 15, 15, 15, 0, 0, ZoneId.of("-6")));
+        john.setSalary(new BigDecimal("73000.00"));
+        john.setHomeAddress(new Address("123 Main St", "Anytown", "TX", "12345", "United States", "Foulton County", Region.WEST));
+        Person jane = new Person("Jane", lastName, ZonedDateTime.of(1985, 5, 20, 10, 30, 0, 0, ZoneId.of("-6")));
+        repo.saveAll(List.of(john, jane));
+
+        List<PersonSummary> summaries = repo.findAll(Projection.of(PeopleRepository.FIRST_NAME, PeopleRepository.LAST_NAME, PeopleRepository.SALARY)).stream()
+                .filter(summary -> lastName.equals(summary.lastName()))
+                .toList();
+
+        assertThat(summaries).containsExactlyInAnyOrder(
+                new PersonSummary(john.getId(), "John", lastName, null, new BigDecimal("73000.00"), null),
+                new PersonSummary(jane.getId(), "Jane", lastName, null, null, null));
+    }
+
+    @Test
+    public void projectionRejectsUnknownColumns() {
+        assertThatThrownBy(() -> Projection.of(PeopleRepository.FIRST_NAME, "HOME_ADDRESS; DROP TABLE PEOPLE"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void canFindPagesWithBatchedChildren() {
+        repo.setChildrenFetchMode(FetchMode.BATCH);
+        repo.setIdChunkSize(2);
+        Person john = new Person("John", "Smith", ZonedDateTime.of(1980, 11, 15, 15, 15, 0, 0, ZoneId.of("-6")));
+        john.addChild(new Person("Tom", "Smith", ZonedDateTime.of(2010, 1, 1, 0, 0, 0, 0, ZoneId.of("-6"))));
+        john.addChild(new Person("Ann", "Smith", ZonedDateTime.of(2015, 6, 15, 12, 0, 0, 0, ZoneId.of("-6"))));
+        Person savedJohn = repo.save(john);
+
+        Page<Person> page = repo.findPage(savedJohn.getId() - 1, 3);
+
+        assertThat(page.content()).hasSize(3).first().isEqualTo(savedJohn);
+        assertThat(page.content().subList(1, 3)).containsExactlyInAnyOrderElementsOf(savedJohn.getChildren());
+        assertThat(page.content().get(0).getChildren()).containsExactlyInAnyOrder(savedJohn.getChildren().toArray(new Person[]{}));
+        assertThat(page.content().get(0).getChildren()).allSatisfy(child -> assertThat(child.getParent()).containsSame(page.content().get(0)));
+    }
+
+    @Test
+    public void updateAllWritesOnlyChangedColumnsOfChangedPeople() throws SQLException {
+        Person john = repo.save(new Person("John", "Smith", ZonedDateTime.of(1980, 11, 15, 15, 15, 0, 0, ZoneId.of("-6"))));
+        Person jane = repo.save(new Person("Jane", "Doe", ZonedDateTime.of(1985, 5, 20, 10, 30, 0, 0, ZoneId.of("-6"))));
+        try (Session session = Session.open()) {
+            Person foundJohn = repo.findById(john.getId()).get();
+            Person foundJane = repo.findById(jane.getId()).get();
+            foundJohn.setSalary(new BigDecimal("73000.44"));
+            // changed behind the repository's back, so it shows which columns updateAll writes
+            try (Statement statement = connection.createStatement()) {
+                statement.executeUpdate("UPDATE PEOPLE SET LAST_NAME = 'Changed' WHERE ID IN (" + john.getId() + ", " + jane.getId() + ")");
+            }
+
+            assertThat(repo.updateAll(List.of(foundJohn, foundJane))).isEqualTo(1);
+            assertThat(repo.updateAll(List.of(foundJohn, foundJane))).isZero();
+        }
+        Person updatedJohn = repo.findById(john.getId()).get();
+        assertThat(updatedJohn.getSalary()).isEqualByComparingTo("73000.44");
+        assertThat(updatedJohn.getLastName()).isEqualTo("Changed");
+        assertThat(repo.findById(jane.getId()).get().getLastName()).isEqualTo("Changed");
+    }
+
+    @Test
+    public void canDeleteAllById() {
+        Person john = repo.save(new Person("John", "Smith", ZonedDateTime.of(1980, 11, 15, 15, 15, 0, 0, ZoneId.of("-6"))));
+        Person jane = repo.save(new Person("Jane", "Doe", ZonedDateTime.of(1985, 5, 20, 10, 30, 0, 0, ZoneId.of("-6"))));
+        Person jack = repo.save(new Person("Jack", "Doe", ZonedDateTime.of(1990, 1, 1, 0, 0, 0, 0, ZoneId.of("-6"))));
+        repo.setIdChunkSize(1);
+
+        assertThat(repo.deleteAllById(List.of(john.getId(), jane.getId(), john.getId(), -1L))).isEqualTo(2);
+        assertThat(repo.findById(john.getId())).isEmpty();
+        assertThat(repo.findById(jane.getId())).isEmpty();
+        assertThat(repo.findById(jack.getId())).isNotEmpty();
+    }
+
+    @Test
+    public void canDeleteFamilyWithOrphanedAddresses() throws UnableToInitializeRepositoryException {
+        Person grandpa = repo.save(new Person("John", "Smith", ZonedDateTime.of(1940, 11, 15, 15, 15, 0, 0, ZoneId.of("-6"))));
+        Person dad = new Person("Jack", "Smith", ZonedDateTime.of(1970, 5, 20, 10, 30, 0, 0, ZoneId.of("-6")));
+        dad.setParent(grandpa);
+        dad.setHomeAddress(new Address("123 Main St", "APT. 1A", "Anytown", "TX", "12345", "United States", "Foulton County", Region.WEST));
+        repo.save(dad);
+        Person kid = new Person("Johnny", "Smith", ZonedDateTime.of(2000, 1, 1, 0, 0, 0, 0, ZoneId.of("-6")));
+        kid.setParent(dad);
+        repo.save(kid);
+        Person stranger = repo.save(new Person("Jane", "Doe", ZonedDateTime.of(1985, 5, 20, 10, 30, 0, 0, ZoneId.of("-6"))));
+        AddressRepository addressRepository = new AddressRepository(connection);
+        long addressCount = addressRepository.count();
+        repo.setDeletingOrphanedAddresses(true);
+
+        assertThat(repo.deleteFamily(dad.getId())).isEqualTo(2);
+        assertThat(repo.findById(dad.getId())).isEmpty();
+        assertThat(repo.findById(kid.getId())).isEmpty();
+        assertThat(repo.findById(grandpa.getId())).isNotEmpty();
+        assertThat(repo.findById(stranger.getId())).isNotEmpty();
+        assertThat(addressRepository.count()).isEqualTo(addressCount - 1);
+        assertThat(repo.deleteFamily(dad.getId())).isZero();
+    }
+
+    @Test
+    public void canFindAllByIdInRequestOrder() {
+        Person john = repo.save(new Person("John", "Smith", ZonedDateTime.of(1980, 11, 15, 15, 15, 0, 0, ZoneId.of("-6"))));
+        Person jane = repo.save(new Person("Jane", "Doe", ZonedDateTime.of(1985, 5, 20, 10, 30, 0, 0, ZoneId.of("-6"))));
+        Person jack = repo.save(new Person("Jack", "Doe", ZonedDateTime.of(1990, 1, 1, 0, 0, 0, 0, ZoneId.of("-6"))));
+        repo.setIdChunkSize(2);
+
+        List<Person> people = repo.findAllById(List.of(jack.getId(), -1L, john.getId(), jack.getId(), jane.getId()));
+
+        assertThat(people).extracting(Person::getFirstName).containsExactly("Jack", "John", "Jane");
+        assertThat(people.get(0).getDateOfBirth().toInstant()).isEqualTo(jack.getDateOfBirth().toInstant());
+    }
+
+    @Test
+    public void canCheckExistenceAndFindBasicPersonWithoutGraph() {
+        Person john = new Person("John", "Smith", ZonedDateTime.of(1980, 11, 15, 15, 15, 0, 0, ZoneId.of("+0")));
+        john.setEmail("john.smith.exists@example.com");
+        john.setSalary(new BigDecimal("73000.50"));
+        john = repo.save(john);
+
+        assertThat(repo.existsById(john.getId())).isTrue();
+        assertThat(repo.existsById(-1L)).isFalse();
+        assertThat(repo.existsByEmail("john.smith.exists@example.com")).isTrue();
+        assertThat(repo.existsByEmail("nobody.exists@example.com")).isFalse();
+        PersonSummary basicJohn = repo.findBasicById(john.getId()).get();
+        assertThat(basicJohn.firstName()).isEqualTo("John");
+        assertThat(basicJohn.lastName()).isEqualTo("Smith");
+        assertThat(basicJohn.dateOfBirth()).isEqualTo(ZonedDateTime.of(1980, 11, 15, 15, 15, 0, 0, ZoneId.of("+0")));
+        assertThat(basicJohn.salary()).isEqualByComparingTo("73000.50");
+        assertThat(basicJohn.email()).isEqualTo("john.smith.exists@example.com");
+        assertThat(repo.findBasicById(-1L)).isEmpty();
+        assertThat(repo.findBasicById(null)).isEmpty();
+    }
+
+    @Test
+    public void canFindPeopleByCriteria() {
+        String lastName = "Criteria" + System.nanoTime();
+        for (int i = 1; i <= 5; i++) {
+            Person person = new Person("John" + i, lastName, ZonedDateTime.of(1980 + i, 1, 1, 0, 0, 0, 0, ZoneId.of("+0")));
+            person.setSalary(new BigDecimal(i * 10_000));
+            if (i % 2 == 0) {
+                person.setHomeAddress(new Address("123 Main St", "APT. " + i, "Anytown", "TX", "12345", "United States", "Foulton County", Region.WEST));
+            }
+            repo.save(person);
+        }
+
+        List<Person> people = repo.findAll(PersonCriteria.where(PersonField.LAST_NAME).eq(lastName)
+                .and(PersonField.SALARY).between(new BigDecimal("20000"), new BigDecimal("40000"))
+                .orderByDescending(PersonField.SALARY));
+        long missesAfterFirstQuery = repo.getStatementCacheMissCount();
+        List<Person> westerners = repo.findAll(PersonCriteria.where(PersonField.LAST_NAME).eq(lastName)
+                .and(PersonField.SALARY).between(new BigDecimal("10000"), new BigDecimal("50000"))
+                .and(PersonField.HOME_REGION).in(List.of(Region.WEST)));
+
+        assertThat(people).extracting(Person::getFirstName).containsExactly("John4", "John3", "John2");
+        assertThat(westerners).extracting(Person::getFirstName).containsExactly("John2", "John4");
+        assertThat(repo.count(PersonCriteria.where(PersonField.LAST_NAME).eq(lastName)
+                .and(PersonField.DOB).gt(ZonedDateTime.of(1983, 1, 1, 0, 0, 0, 0, ZoneId.of("+0"))))).isEqualTo(2);
+        assertThat(repo.findAll(PersonCriteria.where(PersonField.LAST_NAME).eq(lastName)
+                .and(PersonField.SALARY).between(new BigDecimal("50000"), new BigDecimal("90000"))
+                .orderByDescending(PersonField.SALARY))).extracting(Person::getFirstName).containsExactly("John5");
+        // the same shape with other values reuses the prepared statement
+        assertThat(repo.getStatementCacheMissCount()).isEqualTo(missesAfterFirstQuery + 2);
+    }
+
+    private List<Person> createPeople(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> new Person("John" + i, "Smith", ZonedDateTime.of(1980, 11, 15, 15, 15, 0, 0, ZoneId.of("-6"))))
+                .toList();
+    }
 
     // separate code for check how to do some functionality
 //    @Test
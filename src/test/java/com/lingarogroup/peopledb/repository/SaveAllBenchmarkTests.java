@@ -0,0 +1,75 @@
+package com.lingarogroup.peopledb.repository;
+
+import com.lingarogroup.peopledb.exception.UnableToInitializeRepositoryException;
+import com.lingarogroup.peopledb.model.Person;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * This benchmark compares the throughput of saving people one by one with save and in batches with saveAll.
+ * It is excluded from the test task and runs with the benchmark task: ./gradlew benchmark
+ */
+@Tag("benchmark")
+public class SaveAllBenchmarkTests {
+    private static final int ROWS = 10_000;
+    private static final int WARM_UP_ROWS = 2_000;
+
+    private Connection connection;
+    private PeopleRepository repo;
+
+    @BeforeEach
+    void setUp() throws SQLException, UnableToInitializeRepositoryException {
+        // a private in-memory database, so the benchmark doesn't touch real data
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:benchmark" + System.nanoTime());
+        connection = dataSource.getConnection();
+        new SchemaManager(connection).migrate();
+        repo = new PeopleRepository(connection);
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        if (connection != null) connection.close();
+    }
+
+    @Test
+    public void saveAllIsFasterThanSaveForManyRows() {
+        // warming up both paths first, so the JIT and the statement cache don't favour the second one
+        createPeople(WARM_UP_ROWS).forEach(repo::save);
+        repo.saveAll(createPeople(WARM_UP_ROWS));
+
+        List<Person> singlePeople = createPeople(ROWS);
+        long singleStart = System.nanoTime();
+        singlePeople.forEach(repo::save);
+        long singleTime = System.nanoTime() - singleStart;
+
+        List<Person> batchPeople = createPeople(ROWS);
+        long batchStart = System.nanoTime();
+        repo.saveAll(batchPeople);
+        long batchTime = System.nanoTime() - batchStart;
+
+        System.out.printf("save: %d rows/s, saveAll: %d rows/s, speedup: %.1fx%n",
+                ROWS * 1_000_000_000L / singleTime, ROWS * 1_000_000_000L / batchTime, (double) singleTime / batchTime);
+        batchPeople.forEach(person -> assertThat(person.getId()).isGreaterThan(0));
+        assertThat(repo.count()).isEqualTo(2L * (WARM_UP_ROWS + ROWS));
+        assertThat(batchTime).isLessThan(singleTime);
+    }
+
+    private static List<Person> createPeople(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> new Person("John" + i, "Smith", ZonedDateTime.of(1980, 11, 15, 15, 15, 0, 0, ZoneId.of("-6"))))
+                .toList();
+    }
+}
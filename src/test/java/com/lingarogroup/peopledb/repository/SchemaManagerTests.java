@@ -0,0 +1,79 @@
+package com.lingarogroup.peopledb.repository;
+
+import com.lingarogroup.peopledb.exception.UnableToInitializeRepositoryException;
+import com.lingarogroup.peopledb.model.Person;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SchemaManagerTests {
+    private JdbcDataSource dataSource;
+    private Connection keepAlive;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        // a private in-memory database, kept alive by one open connection, so the test doesn't touch real data
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:schema" + System.nanoTime());
+        keepAlive = dataSource.getConnection();
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        if (keepAlive != null) keepAlive.close();
+    }
+
+    @Test
+    public void canCreateSchemaWithIndexesOnce() throws UnableToInitializeRepositoryException {
+        SchemaManager schemaManager = new SchemaManager(dataSource);
+        assertThat(schemaManager.getVersion()).isZero();
+
+        assertThat(schemaManager.migrate()).isEqualTo(SchemaManager.MIGRATIONS.size());
+        assertThat(schemaManager.getVersion()).isEqualTo(SchemaManager.MIGRATIONS.size());
+        assertThat(schemaManager.missingIndexes()).isEmpty();
+        assertThat(schemaManager.migrate()).isZero();
+
+        try (PeopleRepository repo = new PeopleRepository(dataSource)) {
+            Person john = repo.save(new Person("John", "Smith", ZonedDateTime.of(1980, 11, 15, 15, 15, 0, 0, ZoneId.of("-6"))));
+            assertThat(repo.findById(john.getId())).isPresent();
+        }
+    }
+
+    @Test
+    public void canMigrateHandMadeSchemaAndReportMissingIndexes() throws SQLException, UnableToInitializeRepositoryException {
+        try (Statement statement = keepAlive.createStatement()) {
+            statement.execute("""
+                    CREATE TABLE ADDRESSES (ID BIGINT AUTO_INCREMENT PRIMARY KEY, STREET_ADDRESS VARCHAR(255), ADDRESS2 VARCHAR(255),
+                        CITY VARCHAR(255), STATE VARCHAR(255), POSTCODE VARCHAR(255), COUNTRY VARCHAR(255));
+                    CREATE TABLE PEOPLE (ID BIGINT AUTO_INCREMENT PRIMARY KEY, FIRST_NAME VARCHAR(255), LAST_NAME VARCHAR(255), DOB TIMESTAMP,
+                        SALARY NUMERIC(10, 2));
+                    INSERT INTO PEOPLE (FIRST_NAME, LAST_NAME, SALARY) VALUES ('John', 'Smith', 73000.50);
+                    """);
+        }
+        SchemaManager schemaManager = new SchemaManager(keepAlive);
+        // the columns of the indexes don't exist yet, so none of the indexes can be there
+        assertThat(schemaManager.missingIndexes()).containsExactlyElementsOf(SchemaManager.INDEXES);
+
+        schemaManager.migrate();
+
+        assertThat(schemaManager.missingIndexes()).isEmpty();
+        try (Statement statement = keepAlive.createStatement()) {
+            statement.execute("DROP INDEX PEOPLE_EMAIL_IDX");
+        }
+        assertThat(schemaManager.missingIndexes()).extracting(SchemaManager.Index::column).containsExactly("EMAIL");
+        try (PeopleRepository repo = new PeopleRepository(keepAlive)) {
+            assertThat(repo.findAll()).singleElement()
+                    .satisfies(person -> assertThat(person.getSalary()).isEqualByComparingTo(new BigDecimal("73000.50")));
+        }
+    }
+}